@@ -28,6 +28,7 @@ import jakarta.servlet.jsp.JspTagException;
 
 import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.util.EscapeXML;
+import org.apache.taglibs.standard.util.SafeMarkup;
 
 /**
  * Static functions that extend the Expression Language with standardized behaviour
@@ -211,6 +212,27 @@ public class Functions {
         return EscapeXML.escape(input);
     }
 
+    /**
+     * Escapes characters that could be interpreted as XML markup as defined by the <code>&lt;c:out&gt;</code> action.
+     * Unlike {@link #escapeXml(String)}, {@link SafeMarkup} is returned without being escaped again;
+     * other values are first converted to a String following the EL coercion rules.
+     *
+     * @param input the value to escape
+     * @return escaped string
+     */
+    public static String escapeMarkup(Object input) {
+        if (input instanceof SafeMarkup) {
+            return input.toString();
+        }
+        if (input == null) {
+            return "";
+        }
+        if (input instanceof Enum) {
+            return escapeXml(((Enum<?>) input).name());
+        }
+        return escapeXml(input.toString());
+    }
+
     /**
      * removes whitespace from both ends of a string according to the semantics of <code>String#trim()</code>.
      *
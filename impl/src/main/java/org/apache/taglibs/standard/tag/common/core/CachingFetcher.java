@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>An {@link ImportFetcher} that keeps the responses of another fetcher
+ * in memory, following the HTTP caching rules for a shared cache.</p>
+ *
+ * <p>Only successful responses that carry an explicit freshness lifetime
+ * (<code>Cache-Control: max-age</code>, <code>s-maxage</code> or
+ * <code>Expires</code>) or a validator (<code>ETag</code> or
+ * <code>Last-Modified</code>) are kept; <code>no-store</code>,
+ * <code>private</code> and <code>Vary</code> responses never are. Once an
+ * entry goes stale it is revalidated with a conditional request. The
+ * request that finds the entry stale makes that request itself and waits
+ * for it; while it does, other requests are served the stale copy rather
+ * than queueing behind it. If the server fails to answer or answers with
+ * a server error, the stale copy is kept and served, unless the response
+ * said <code>must-revalidate</code> or <code>proxy-revalidate</code>. The
+ * entry is only replaced by a new successful response.</p>
+ *
+ * <p>Entries are evicted least recently used first. Requests that carry
+ * headers of their own bypass the cache.</p>
+ */
+public class CachingFetcher implements ImportFetcher {
+
+    // the headers kept with a cached response
+    private static final String[] CACHED_HEADERS = {
+            "Cache-Control", "Date", "Expires", "ETag", "Last-Modified"
+    };
+
+    private final ImportFetcher fetcher;
+    private final int maxEntrySize;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param fetcher      the fetcher used to retrieve responses that are not cached
+     * @param maxEntries   the maximum number of responses to keep
+     * @param maxEntrySize the size in bytes of the largest response to keep
+     */
+    public CachingFetcher(ImportFetcher fetcher, final int maxEntries, int maxEntrySize) {
+        this.fetcher = fetcher;
+        this.maxEntrySize = maxEntrySize;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns the fetcher that responses which are not cached are retrieved
+     * with, for instance the {@link ResilientFetcher} whose state should be
+     * monitored.
+     *
+     * @return the underlying fetcher
+     */
+    public ImportFetcher getFetcher() {
+        return fetcher;
+    }
+
+    public ImportResponse fetch(String url, Map<String, String> headers) throws IOException {
+        return fetch(url, headers, 0);
+    }
+
+    @Override
+    public ImportResponse fetch(String url, Map<String, String> headers, long deadline) throws IOException {
+        if (!headers.isEmpty()) {
+            return fetcher.fetch(url, headers, deadline);
+        }
+
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return store(url, fetcher.fetch(url, headers, deadline));
+        }
+        if (entry.isFresh(System.currentTimeMillis()) || !entry.revalidating.compareAndSet(false, true)) {
+            // fresh, or stale and someone else is already revalidating it
+            hits.incrementAndGet();
+            return entry.response();
+        }
+        try {
+            return revalidate(url, entry, deadline);
+        } finally {
+            entry.revalidating.set(false);
+        }
+    }
+
+    /**
+     * Returns the number of requests answered from the cache without contacting the server.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests for URLs that were not in the cache.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of stale entries that were checked with the server.
+     *
+     * @return the number of revalidations
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * Returns the number of responses currently held.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Discards every cached response.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private ImportResponse revalidate(String url, Entry entry, long deadline) throws IOException {
+        revalidations.incrementAndGet();
+        Map<String, String> conditions = new HashMap<>();
+        String etag = entry.getHeader("ETag");
+        if (etag != null) {
+            conditions.put("If-None-Match", etag);
+        }
+        String lastModified = entry.getHeader("Last-Modified");
+        if (lastModified != null) {
+            conditions.put("If-Modified-Since", lastModified);
+        }
+        ImportResponse response;
+        try {
+            response = fetcher.fetch(url, conditions, deadline);
+        } catch (IOException e) {
+            if (entry.mayServeStale()) {
+                hits.incrementAndGet();
+                return entry.response();
+            }
+            throw e;
+        }
+        if (response.getStatus() >= 500 && entry.mayServeStale()) {
+            // a server error should not cost us the copy we have
+            response.close();
+            hits.incrementAndGet();
+            return entry.response();
+        }
+        if (response.getStatus() != 304) {
+            try {
+                return store(url, response);
+            } catch (IOException e) {
+                if (response.getStatus() == 200 && entry.mayServeStale()) {
+                    hits.incrementAndGet();
+                    return entry.response();
+                }
+                throw e;
+            }
+        }
+        try {
+            // headers sent with a 304 replace those that were stored
+            Map<String, String> updated = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            updated.putAll(entry.headers);
+            for (String name : CACHED_HEADERS) {
+                String value = response.getHeader(name);
+                if (value != null) {
+                    updated.put(name, value);
+                }
+            }
+            Entry refreshed = new Entry(entry.body, updated, expiry(updated, System.currentTimeMillis()));
+            entries.put(url, refreshed);
+            return refreshed.response();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Stores a response if it may be cached.
+     *
+     * @return the response to hand to the caller; the original response if it was not cached
+     */
+    private ImportResponse store(String url, ImportResponse response) throws IOException {
+        if (response.getStatus() != 200 && response.getStatus() != -1) {
+            entries.remove(url);
+            return response;
+        }
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : CACHED_HEADERS) {
+            String value = response.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        if (response.getContentType() != null) {
+            headers.put("Content-Type", response.getContentType());
+        }
+        String cacheControl = headers.get("Cache-Control");
+        long now = System.currentTimeMillis();
+        long expires = expiry(headers, now);
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")
+                || response.getHeader("Vary") != null
+                || (expires <= now && !headers.containsKey("ETag") && !headers.containsKey("Last-Modified"))
+                || response.getContentLength() > maxEntrySize) {
+            entries.remove(url);
+            return response;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean complete = false;
+        try {
+            InputStream in = response.getInputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+                if (body.size() > maxEntrySize) {
+                    // too big after all; hand back what we have read followed by the rest
+                    entries.remove(url);
+                    complete = true;
+                    return new PartialResponse(response, new SequenceInputStream(
+                            new ByteArrayInputStream(body.toByteArray()), in));
+                }
+            }
+        } finally {
+            if (!complete) {
+                response.close();
+            }
+        }
+
+        Entry entry = new Entry(body.toByteArray(), headers, expires);
+        entries.put(url, entry);
+        return entry.response();
+    }
+
+    /**
+     * Works out when a response stops being fresh.
+     *
+     * @return the expiry time in milliseconds; no later than <code>now</code> if it must always be revalidated
+     */
+    static long expiry(Map<String, String> headers, long now) {
+        String cacheControl = headers.get("Cache-Control");
+        if (hasDirective(cacheControl, "no-cache")) {
+            return now;
+        }
+        long maxAge = directiveValue(cacheControl, "s-maxage");
+        if (maxAge < 0) {
+            maxAge = directiveValue(cacheControl, "max-age");
+        }
+        if (maxAge >= 0) {
+            return now + maxAge * 1000;
+        }
+        String expires = headers.get("Expires");
+        if (expires != null) {
+            long time = parseDate(expires);
+            if (time == Long.MIN_VALUE) {
+                // invalid dates mean "already expired"
+                return now;
+            }
+            // measure the lifetime against the server's clock
+            long date = parseDate(headers.get("Date"));
+            return date == Long.MIN_VALUE ? time : now + (time - date);
+        }
+        return now;
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        return directive(cacheControl, name) != null;
+    }
+
+    private static long directiveValue(String cacheControl, String name) {
+        String directive = directive(cacheControl, name);
+        if (directive == null) {
+            return -1;
+        }
+        int eq = directive.indexOf('=');
+        if (eq == -1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(directive.substring(eq + 1).trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String directive(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return null;
+        }
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            int eq = directive.indexOf('=');
+            String directiveName = eq == -1 ? directive : directive.substring(0, eq).trim();
+            if (directiveName.equalsIgnoreCase(name)) {
+                return directive;
+            }
+        }
+        return null;
+    }
+
+    private static long parseDate(String date) {
+        if (date == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] body;
+        private final Map<String, String> headers;
+        private final long expires;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Entry(byte[] body, Map<String, String> headers, long expires) {
+            this.body = body;
+            this.headers = headers;
+            this.expires = expires;
+        }
+
+        boolean isFresh(long now) {
+            return now < expires;
+        }
+
+        // whether the stale entry may be served when it can not be revalidated
+        boolean mayServeStale() {
+            String cacheControl = headers.get("Cache-Control");
+            return !hasDirective(cacheControl, "must-revalidate") && !hasDirective(cacheControl, "proxy-revalidate");
+        }
+
+        String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        ImportResponse response() {
+            return new ImportResponse() {
+                public int getStatus() {
+                    return 200;
+                }
+
+                public String getHeader(String name) {
+                    return Entry.this.getHeader(name);
+                }
+
+                public String getContentType() {
+                    return Entry.this.getHeader("Content-Type");
+                }
+
+                public long getContentLength() {
+                    return body.length;
+                }
+
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                public void close() {
+                }
+            };
+        }
+    }
+
+    /**
+     * A response whose content has been partly read while deciding whether to cache it.
+     */
+    private static class PartialResponse implements ImportResponse {
+        private final ImportResponse response;
+        private final InputStream in;
+
+        PartialResponse(ImportResponse response, InputStream in) {
+            this.response = response;
+            this.in = in;
+        }
+
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        public String getContentType() {
+            return response.getContentType();
+        }
+
+        public long getContentLength() {
+            return response.getContentLength();
+        }
+
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import org.apache.taglibs.standard.util.CharBufferPool;
+
+/**
+ * ServletOutputStream that decodes the bytes written to it and passes the
+ * resulting characters on to a Writer.
+ * <p>Bytes are decoded a buffer at a time; a multi-byte sequence split
+ * between writes is carried over to the next decode. Malformed input is
+ * replaced as it would be by <code>new String(bytes, charset)</code>.
+ * {@link #finish()} must be called once the producer is done; it returns
+ * the character buffer, which is taken from the shared
+ * {@link CharBufferPool}. If the producer fails, {@link #discard()} returns
+ * the buffer instead.</p>
+ */
+class DecodingOutputStream extends ServletOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private CharBuffer chars = CharBuffer.wrap(CharBufferPool.getInstance().acquire());
+    private WriteListener writeListener;
+
+    DecodingOutputStream(Writer out, Charset charset) {
+        this.out = out;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        bytes.put((byte) b);
+        if (!bytes.hasRemaining()) {
+            decode(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, bytes.remaining());
+            bytes.put(b, off, n);
+            off += n;
+            len -= n;
+            if (!bytes.hasRemaining()) {
+                decode(false);
+            }
+        }
+    }
+
+    /**
+     * Decodes everything written so far. Characters are not flushed
+     * any further than the target Writer.
+     */
+    @Override
+    public void flush() throws IOException {
+        decode(false);
+    }
+
+    /**
+     * Decodes any remaining input. No more bytes may be written afterwards.
+     *
+     * @throws IOException if the characters could not be written
+     */
+    public void finish() throws IOException {
+        if (chars == null) {
+            return;
+        }
+        try {
+            decode(true);
+            while (decoder.flush(chars).isOverflow()) {
+                drain();
+            }
+            drain();
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Returns the character buffer to the pool without decoding any
+     * remaining input. No more bytes may be written afterwards. Has no
+     * effect if the stream is already finished.
+     */
+    public void discard() {
+        if (chars != null) {
+            CharBufferPool.getInstance().release(chars.array());
+            chars = null;
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    /*
+     * flip() and clear() are called through Buffer: from Java 9 the subclasses
+     * override them with covariant return types, which would not link on Java 8.
+     */
+
+    private void decode(boolean endOfInput) throws IOException {
+        ((Buffer) bytes).flip();
+        try {
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, endOfInput);
+                drain();
+            } while (result.isOverflow());
+        } catch (IOException e) {
+            if (writeListener != null) {
+                writeListener.onError(e);
+            }
+            throw e;
+        } finally {
+            bytes.compact();
+        }
+    }
+
+    private void drain() throws IOException {
+        ((Buffer) chars).flip();
+        if (chars.hasRemaining()) {
+            out.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        }
+        ((Buffer) chars).clear();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>Rendered output of relative &lt;c:import&gt; tags that set
+ * <code>cacheTtl</code>, so that a hit skips the nested dispatch.</p>
+ *
+ * <p>There is one cache per application, held in the context attribute named
+ * by {@link ImportSupport#FRAGMENT_CACHE_ATTRIBUTE}. Entries expire after
+ * the tag's time to live and the least recently used entry is evicted once
+ * the cache is full.</p>
+ *
+ * <p>When several requests miss the same fragment at once, only the first
+ * renders it; the others wait for its result rather than all dispatching
+ * to the target.</p>
+ */
+public final class FragmentCache {
+
+    private final Map<String, Entry> entries;
+
+    // fragments being rendered, released once they are put or abandoned
+    private final ConcurrentMap<String, CountDownLatch> rendering = new ConcurrentHashMap<>();
+
+    FragmentCache(final int maxEntries) {
+        entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns a cached fragment.
+     *
+     * @param key the key for the fragment
+     * @return the fragment, or null if it is not cached or has expired
+     */
+    String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expires) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.content;
+    }
+
+    /**
+     * Returns a cached fragment, waiting while another request renders it.
+     * If null is returned the caller is to render the fragment, and must
+     * then either {@link #put} it or {@link #abandon} it.
+     *
+     * @param key the key for the fragment
+     * @return the fragment, or null if the caller is to render it
+     * @throws InterruptedException if interrupted while waiting
+     */
+    String getOrReserve(String key) throws InterruptedException {
+        while (true) {
+            String content = get(key);
+            if (content != null) {
+                return content;
+            }
+            CountDownLatch reservation = new CountDownLatch(1);
+            CountDownLatch current = rendering.putIfAbsent(key, reservation);
+            if (current == null) {
+                // the fragment may have been put since we looked
+                content = get(key);
+                if (content != null) {
+                    release(key);
+                }
+                return content;
+            }
+            current.await();
+        }
+    }
+
+    /**
+     * Gives up rendering a fragment reserved by {@link #getOrReserve}, so
+     * that a waiting request renders it instead.
+     *
+     * @param key the key for the fragment
+     */
+    void abandon(String key) {
+        release(key);
+    }
+
+    /**
+     * Caches a fragment.
+     *
+     * @param key     the key for the fragment
+     * @param content the rendered fragment
+     * @param ttl     how long to keep it, in milliseconds
+     */
+    void put(String key, String content, long ttl) {
+        entries.put(key, new Entry(content, System.currentTimeMillis() + ttl));
+        release(key);
+    }
+
+    /**
+     * Returns the number of fragments held, including any that have expired
+     * but not yet been removed.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Discards every cached fragment.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void release(String key) {
+        CountDownLatch reservation = rendering.remove(key);
+        if (reservation != null) {
+            reservation.countDown();
+        }
+    }
+
+    private static class Entry {
+        private final String content;
+        private final long expires;
+
+        Entry(String content, long expires) {
+            this.content = content;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * <p>Retrieves the content of absolute URLs for &lt;import&gt;.</p>
+ *
+ * <p>An application can supply its own implementation by naming a class
+ * with a public no-argument constructor in the context initialization
+ * parameter {@link ImportSupport#FETCHER_PARAM}. A single instance is
+ * shared by all requests in the application so implementations must be
+ * thread-safe. The default is {@link URLConnectionFetcher}.</p>
+ */
+public interface ImportFetcher {
+
+    /**
+     * Opens a URL. The caller must close the response once it is done with it.
+     *
+     * @param url     the absolute URL to retrieve
+     * @param headers additional request headers; may be empty
+     * @return the response
+     * @throws IOException if the resource could not be retrieved
+     */
+    ImportResponse fetch(String url, Map<String, String> headers) throws IOException;
+
+    /**
+     * Opens a URL, completing by a deadline. The caller must close the
+     * response once it is done with it.
+     *
+     * <p>If a deadline is given, the request should fail with a
+     * <code>SocketTimeoutException</code> rather than run past it, including
+     * while the content is being read. The default implementation ignores
+     * the deadline and calls {@link #fetch(String, Map)}; fetchers that can
+     * honour it should override this method.</p>
+     *
+     * @param url      the absolute URL to retrieve
+     * @param headers  additional request headers; may be empty
+     * @param deadline the time, as given by <code>System.currentTimeMillis()</code>,
+     *                 by which the whole request should be complete, or 0 for none
+     * @return the response
+     * @throws IOException if the resource could not be retrieved
+     */
+    default ImportResponse fetch(String url, Map<String, String> headers, long deadline) throws IOException {
+        return fetch(url, headers);
+    }
+}
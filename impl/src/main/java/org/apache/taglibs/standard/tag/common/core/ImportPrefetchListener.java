@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+
+/**
+ * Cancels the fetches started by &lt;c:import prefetch="true"&gt; that are
+ * still pending when a request ends, and stops the threads used for them
+ * when an application is stopped, so that they do not keep its class
+ * loader alive. It is declared in the core TLD and so registered
+ * automatically.
+ */
+public class ImportPrefetchListener implements ServletContextListener, ServletRequestListener {
+
+    public void contextInitialized(ServletContextEvent event) {
+    }
+
+    public void contextDestroyed(ServletContextEvent event) {
+        ImportPrefetcher.shutdown(event.getServletContext());
+    }
+
+    public void requestInitialized(ServletRequestEvent event) {
+    }
+
+    public void requestDestroyed(ServletRequestEvent event) {
+        ImportPrefetcher.cancel(event.getServletRequest());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspTagException;
+
+/**
+ * Fetches of absolute URLs started by &lt;c:import prefetch="true"&gt;.
+ * <p>A prefetch runs in the background while the page carries on. A later
+ * import of the same URL in the same request takes the fetch over and
+ * waits for it to finish, so a page that starts several prefetches before
+ * it needs their content pays roughly for the slowest fetch instead of the
+ * sum. The content is exported as a String and a failed fetch is reported
+ * by the import that takes it over. Fetches that no import takes over are
+ * cancelled when the request ends, see {@link ImportPrefetchListener}.</p>
+ * <p>Each application has its own small pool of daemon threads, created on
+ * first use and shut down by {@link ImportPrefetchListener} when the
+ * application is stopped. Idle threads exit. When every thread is busy the
+ * fetch runs on the calling thread, just as it would have without
+ * prefetching.</p>
+ */
+final class ImportPrefetcher {
+
+    private static final String EXECUTOR_ATTRIBUTE = "org.apache.taglibs.standard.import.prefetchExecutor";
+    private static final String PENDING_ATTRIBUTE = "org.apache.taglibs.standard.import.prefetched";
+
+    private ImportPrefetcher() {
+    }
+
+    /**
+     * Starts a fetch for the current request, unless a fetch with the same
+     * key is already pending.
+     *
+     * @param servletContext the application whose threads are used
+     * @param request        the request the content is for
+     * @param key            identifies the fetch for {@link #take}
+     * @param fetch          the task that fetches the content
+     * @param threads        the maximum number of threads of the
+     *                       application's pool, or 0 for the default
+     */
+    static void start(ServletContext servletContext, ServletRequest request, String key,
+                      Callable<String> fetch, int threads) {
+        Map<String, Future<String>> pending = getPending(request);
+        if (pending == null) {
+            pending = new HashMap<>();
+            request.setAttribute(PENDING_ATTRIBUTE, pending);
+        } else if (pending.containsKey(key)) {
+            return;
+        }
+        pending.put(key, getExecutor(servletContext, threads).submit(fetch));
+    }
+
+    /**
+     * Takes over a fetch started for the current request, waiting for it
+     * to finish.
+     *
+     * @param request the request
+     * @param key     the key the fetch was started with
+     * @return the content, or null if no such fetch was started
+     * @throws IOException  if the content could not be read
+     * @throws JspException if the content could not be fetched
+     */
+    static String take(ServletRequest request, String key) throws IOException, JspException {
+        Map<String, Future<String>> pending = getPending(request);
+        Future<String> content = pending == null ? null : pending.remove(key);
+        if (content == null) {
+            return null;
+        }
+        try {
+            return content.get();
+        } catch (InterruptedException e) {
+            content.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new JspTagException(e.toString(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof JspException) {
+                throw (JspException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JspTagException(cause.toString(), cause);
+        }
+    }
+
+    /**
+     * Cancels the fetches of a request that no import has taken over, so
+     * that they do not hold threads and connections once it has ended.
+     *
+     * @param request the request
+     */
+    static void cancel(ServletRequest request) {
+        Map<String, Future<String>> pending = getPending(request);
+        if (pending == null) {
+            return;
+        }
+        request.removeAttribute(PENDING_ATTRIBUTE);
+        for (Future<String> content : pending.values()) {
+            content.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the threads of an application, abandoning fetches in progress.
+     *
+     * @param servletContext the application
+     */
+    static void shutdown(ServletContext servletContext) {
+        Object executor;
+        synchronized (ImportPrefetcher.class) {
+            executor = servletContext.getAttribute(EXECUTOR_ATTRIBUTE);
+            servletContext.removeAttribute(EXECUTOR_ATTRIBUTE);
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Future<String>> getPending(ServletRequest request) {
+        return (Map<String, Future<String>>) request.getAttribute(PENDING_ATTRIBUTE);
+    }
+
+    private static ExecutorService getExecutor(ServletContext servletContext, int threads) {
+        Object executor = servletContext.getAttribute(EXECUTOR_ATTRIBUTE);
+        if (executor == null) {
+            synchronized (ImportPrefetcher.class) {
+                executor = servletContext.getAttribute(EXECUTOR_ATTRIBUTE);
+                if (executor == null) {
+                    executor = createExecutor(threads);
+                    servletContext.setAttribute(EXECUTOR_ATTRIBUTE, executor);
+                }
+            }
+        }
+        return (ExecutorService) executor;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors() * 4;
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "jstl-import-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>The response to a request made by an {@link ImportFetcher}.</p>
+ *
+ * <p>Closing the response, or the stream returned by
+ * {@link #getInputStream()}, releases any resource held for it.</p>
+ */
+public interface ImportResponse extends Closeable {
+
+    /**
+     * Returns the status code, or -1 if the protocol does not have one.
+     *
+     * @return the status code
+     */
+    int getStatus();
+
+    /**
+     * Returns the value of a response header.
+     *
+     * @param name the name of the header
+     * @return the value of the header or null if there is none
+     */
+    String getHeader(String name);
+
+    /**
+     * Returns the content type of the response.
+     *
+     * @return the content type, or null if not known
+     */
+    String getContentType();
+
+    /**
+     * Returns the length of the content.
+     *
+     * @return the length of the content, or -1 if not known
+     */
+    long getContentLength();
+
+    /**
+     * Returns a stream from which to read the content.
+     *
+     * @return the content
+     * @throws IOException if the content could not be read
+     */
+    InputStream getInputStream() throws IOException;
+}
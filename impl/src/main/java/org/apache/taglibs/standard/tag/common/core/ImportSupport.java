@@ -21,7 +21,6 @@ import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletOutputStream;
-import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpServletResponseWrapper;
@@ -33,8 +32,7 @@ import jakarta.servlet.jsp.tagext.TryCatchFinally;
 import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.util.UrlUtil;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -43,9 +41,11 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 import java.util.Locale;
 
 /**
@@ -67,12 +67,119 @@ public abstract class ImportSupport extends BodyTagSupport
      */
     public static final String DEFAULT_ENCODING = "ISO-8859-1";
 
+    /**
+     * Name of the context initialization parameter giving the class name
+     * of the {@link ImportFetcher} used for absolute URLs.
+     */
+    public static final String FETCHER_PARAM = "org.apache.taglibs.standard.import.fetcher";
+
+    /**
+     * Name of the context initialization parameter giving the timeout, in
+     * milliseconds, for connecting to absolute URLs.
+     */
+    public static final String CONNECT_TIMEOUT_PARAM = "org.apache.taglibs.standard.import.connectTimeout";
+
+    /**
+     * Name of the context initialization parameter giving the timeout, in
+     * milliseconds, for reading from absolute URLs.
+     */
+    public static final String READ_TIMEOUT_PARAM = "org.apache.taglibs.standard.import.readTimeout";
+
+    /**
+     * Name of the context initialization parameter giving the maximum number
+     * of concurrent requests made to any one host. A request over the limit
+     * waits up to the connect timeout for a turn, or fails at once if no
+     * connect timeout is set.
+     */
+    public static final String MAX_CONNECTIONS_PER_HOST_PARAM = "org.apache.taglibs.standard.import.maxConnectionsPerHost";
+
+    /**
+     * Name of the context initialization parameter giving the number of
+     * responses from absolute URLs to keep in memory; by default none are.
+     *
+     * @see CachingFetcher
+     */
+    public static final String CACHE_SIZE_PARAM = "org.apache.taglibs.standard.import.cacheSize";
+
+    /**
+     * Name of the context initialization parameter giving the size, in
+     * bytes, of the largest response that will be cached.
+     */
+    public static final String CACHE_MAX_ENTRY_SIZE_PARAM = "org.apache.taglibs.standard.import.cacheMaxEntrySize";
+
+    /**
+     * Name of the context initialization parameter giving the maximum number
+     * of threads each application uses to prefetch absolute URLs.
+     *
+     * @see ImportPrefetcher
+     */
+    public static final String PREFETCH_THREADS_PARAM = "org.apache.taglibs.standard.import.prefetchThreads";
+
+    /**
+     * Name of the context initialization parameter giving the size, in
+     * bytes, of the largest absolute URL that will be read into a String;
+     * by default there is no limit.
+     */
+    public static final String MAX_SIZE_PARAM = "org.apache.taglibs.standard.import.maxSize";
+
+    /**
+     * Name of the context initialization parameter giving the number of
+     * rendered relative imports to keep for tags that set 'cacheTtl'.
+     *
+     * @see FragmentCache
+     */
+    public static final String FRAGMENT_CACHE_SIZE_PARAM = "org.apache.taglibs.standard.import.fragmentCacheSize";
+
+    /**
+     * Name of the context attribute holding the application's
+     * {@link FragmentCache}.
+     */
+    static final String FRAGMENT_CACHE_ATTRIBUTE = "org.apache.taglibs.standard.import.fragmentCache";
+
+    /**
+     * Name of the context initialization parameter giving the time, in
+     * milliseconds, within which an absolute import must complete unless
+     * the tag sets its own 'timeout'.
+     */
+    public static final String TIMEOUT_PARAM = "org.apache.taglibs.standard.import.timeout";
+
+    /**
+     * Name of the context initialization parameter giving the error rate,
+     * as a percentage, at which requests to a host are suspended; by
+     * default they never are.
+     *
+     * @see ResilientFetcher
+     */
+    public static final String FAILURE_THRESHOLD_PARAM = "org.apache.taglibs.standard.import.failureThreshold";
+
+    /**
+     * Name of the context initialization parameter giving the time, in
+     * milliseconds, for which requests to a failing host are suspended.
+     */
+    public static final String RETRY_INTERVAL_PARAM = "org.apache.taglibs.standard.import.retryInterval";
+
+    /**
+     * Name of the context initialization parameter giving the number of
+     * absolute URLs whose last good content is kept to be served when a
+     * request fails; by default none is kept.
+     */
+    public static final String STALE_SIZE_PARAM = "org.apache.taglibs.standard.import.staleSize";
+
+    private static final int DEFAULT_CACHE_MAX_ENTRY_SIZE = 256 * 1024;
+    private static final int INITIAL_FETCH_SIZE = 64 * 1024;
+    private static final int DEFAULT_RETRY_INTERVAL = 30000;
+    private static final int DEFAULT_FRAGMENT_CACHE_SIZE = 100;
+
     //*********************************************************************
     // Protected state
 
     protected String url;                         // 'url' attribute
     protected String context;              // 'context' attribute
     protected String charEncoding;                // 'charEncoding' attrib.
+    protected boolean prefetch;                   // 'prefetch' attribute
+    protected int cacheTtl;                       // 'cacheTtl' attribute
+    protected int timeout;                        // 'timeout' attribute
+    protected String cacheVary;                   // 'cacheVary' attribute
 
     //*********************************************************************
     // Private state (implementation details)
@@ -95,6 +202,9 @@ public abstract class ImportSupport extends BodyTagSupport
 
     private void init() {
         url = var = varReader = context = charEncoding = urlWithParams = null;
+        cacheVary = null;
+        cacheTtl = timeout = 0;
+        prefetch = false;
         params = null;
         scope = PageContext.PAGE_SCOPE;
     }
@@ -126,6 +236,11 @@ public abstract class ImportSupport extends BodyTagSupport
         // Record whether our URL is absolute or relative
         isAbsoluteUrl = UrlUtil.isAbsoluteUrl(url);
 
+        // a prefetch is taken over by a later import, never exported
+        if (prefetch && (var != null || varReader != null)) {
+            throw new JspTagException(Resources.getMessage("IMPORT_PREFETCH_WITH_VAR"));
+        }
+
         try {
             // If we need to expose a Reader, we've got to do it right away
             if (varReader != null) {
@@ -146,14 +261,26 @@ public abstract class ImportSupport extends BodyTagSupport
         try {
             // If we didn't expose a Reader earlier...
             if (varReader == null) {
+                // ... start fetching it in the background for a later import ...
+                if (prefetch && isAbsoluteUrl) {
+                    prefetch();
+                }
                 // ... store it in 'var', if available ...
-                if (var != null) {
+                else if (var != null) {
                     pageContext.setAttribute(var, acquireString(), scope);
                 }
                 // ... or simply output it, if we have nowhere to expose it
-                else {
+                else if (isAbsoluteUrl) {
+                    pageContext.getOut().print(acquireString());
+                }
+                // ... writing cached relative content ...
+                else if (cacheTtl > 0) {
                     pageContext.getOut().print(acquireString());
                 }
+                // ... streaming relative content straight to the page
+                else {
+                    include(pageContext.getOut());
+                }
             }
             return EVAL_PAGE;
         } catch (IOException ex) {
@@ -234,149 +361,474 @@ public abstract class ImportSupport extends BodyTagSupport
      * appropriate.  (Perhaps I could have spelled things out more clearly,
      * but I thought this implementation was instructive, not to mention
      * somewhat cute...)
+     *
+     * There are two exceptions.  Reading an absolute URL into a String
+     * decodes the raw bytes in bulk rather than going through a Reader.
+     * And a Reader for a relative URL reads the captured output directly
+     * instead of a String copy of it.  The target cannot be run alongside
+     * the tag's body, as both need the request thread, so the output is
+     * still captured in full before the body starts reading it.
      */
 
     private String acquireString() throws IOException, JspException {
         if (isAbsoluteUrl) {
-            // for absolute URLs, delegate to our peer
-            BufferedReader r = new BufferedReader(acquireReader());
-            StringBuilder sb = new StringBuilder();
-            int i;
-
-            // under JIT, testing seems to show this simple loop is as fast
-            // as any of the alternatives
-            while ((i = r.read()) != -1) {
-                sb.append((char) i);
+            // use the content of a prefetch of the same URL if there is one
+            String content = ImportPrefetcher.take(pageContext.getRequest(), prefetchKey());
+            if (content != null) {
+                return content;
             }
-
-            return sb.toString();
+            // otherwise read the whole content and decode it at once
+            ServletContext servletContext = pageContext.getServletContext();
+            return fetchString(getFetcher(servletContext), targetUrl(), charEncoding,
+                    getIntParameter(servletContext, MAX_SIZE_PARAM), deadline());
+        } else if (cacheTtl > 0 && pageContext.getRequest() instanceof HttpServletRequest) {
+            // use the rendered fragment if we have one
+            FragmentCache cache = getFragmentCache(pageContext.getServletContext());
+            String key = fragmentKey();
+            String content;
+            try {
+                content = cache.getOrReserve(key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JspTagException(e.toString(), e);
+            }
+            if (content == null) {
+                boolean rendered = false;
+                try {
+                    content = include(null).getString();
+                    cache.put(key, content, cacheTtl * 1000L);
+                    rendered = true;
+                } finally {
+                    if (!rendered) {
+                        cache.abandon(key);
+                    }
+                }
+            }
+            return content;
         } else {
             // handle relative URLs ourselves
+            return include(null).getString();
+        }
+    }
 
-            // URL is relative, so we must be an HTTP request
-            if (!(pageContext.getRequest() instanceof HttpServletRequest
-                    && pageContext.getResponse() instanceof HttpServletResponse)) {
-                throw new JspTagException(
-                        Resources.getMessage("IMPORT_REL_WITHOUT_HTTP"));
-            }
-
-            // retrieve an appropriate ServletContext
-            ServletContext c = null;
-            String targetUrl = targetUrl();
-            if (context != null) {
-                c = pageContext.getServletContext().getContext(context);
-            } else {
-                c = pageContext.getServletContext();
-
-                // normalize the URL if we have an HttpServletRequest
-                if (!targetUrl.startsWith("/")) {
-                    String sp = ((HttpServletRequest)
-                            pageContext.getRequest()).getServletPath();
-                    targetUrl = sp.substring(0, sp.lastIndexOf('/'))
-                            + '/' + targetUrl;
+    /**
+     * Builds the key under which a relative import is cached: the context,
+     * the normalized URL with its parameters, and the value of everything
+     * listed in 'cacheVary'.
+     */
+    private String fragmentKey() {
+        StringBuilder key = new StringBuilder();
+        if (context != null) {
+            key.append(context);
+        }
+        key.append('\n').append(normalizeUrl(stripSession(targetUrl())));
+        if (cacheVary != null) {
+            HttpServletRequest request = (HttpServletRequest) pageContext.getRequest();
+            for (String name : cacheVary.split(",")) {
+                name = name.trim();
+                if (name.length() == 0) {
+                    continue;
+                }
+                key.append('\n').append(name).append('=');
+                if (name.equals("locale")) {
+                    key.append(request.getLocale());
+                } else {
+                    key.append(request.getHeader(name));
                 }
             }
+        }
+        return key.toString();
+    }
 
-            if (c == null) {
-                throw new JspTagException(
-                        Resources.getMessage(
-                                "IMPORT_REL_WITHOUT_DISPATCHER", context, targetUrl));
-            }
+    /**
+     * Resolves a page-relative URL against the current servlet path.
+     * Context-relative URLs are returned unchanged.
+     */
+    private String normalizeUrl(String targetUrl) {
+        if (context == null && !targetUrl.startsWith("/")) {
+            String sp = ((HttpServletRequest)
+                    pageContext.getRequest()).getServletPath();
+            targetUrl = sp.substring(0, sp.lastIndexOf('/'))
+                    + '/' + targetUrl;
+        }
+        return targetUrl;
+    }
 
-            // from this context, get a dispatcher
-            RequestDispatcher rd = c.getRequestDispatcher(stripSession(targetUrl));
-            if (rd == null) {
-                throw new JspTagException(stripSession(targetUrl));
+    /**
+     * Starts fetching an absolute URL in the background, for a later
+     * import of the same URL in this request to take over.
+     */
+    private void prefetch() throws JspException {
+        ServletContext servletContext = pageContext.getServletContext();
+        final ImportFetcher fetcher = getFetcher(servletContext);
+        final String target = targetUrl();
+        final String charEncoding = this.charEncoding;
+        final int maxSize = getIntParameter(servletContext, MAX_SIZE_PARAM);
+        final long deadline = deadline();
+        int threads = getIntParameter(servletContext, PREFETCH_THREADS_PARAM);
+        ImportPrefetcher.start(servletContext, pageContext.getRequest(), prefetchKey(), new Callable<String>() {
+            public String call() throws JspException {
+                return fetchString(fetcher, target, charEncoding, maxSize, deadline);
             }
+        }, threads);
+    }
 
-            // Wrap the response so we capture the capture the output.
-            // This relies on the underlying container to return content even if this is a HEAD
-            // request. Some containers (e.g. Tomcat versions without the fix for
-            // https://bz.apache.org/bugzilla/show_bug.cgi?id=57601 ) may not do that.
-            ImportResponseWrapper irw =
-                    new ImportResponseWrapper((HttpServletResponse) pageContext.getResponse());
+    /**
+     * Identifies the content of an absolute import: the URL with its
+     * parameters and the character encoding it is read with.
+     */
+    private String prefetchKey() {
+        return charEncoding == null ? targetUrl() : targetUrl() + '\n' + charEncoding;
+    }
 
-            // spec mandates specific error handling from include()
-            try {
-                rd.include(pageContext.getRequest(), irw);
-            } catch (IOException | RuntimeException ex) {
-                throw new JspException(ex);
-            } catch (ServletException ex) {
-                Throwable rc = ex.getRootCause();
-                while (rc instanceof ServletException) {
-                    rc = ((ServletException) rc).getRootCause();
-                }
-                if (rc == null) {
-                    throw new JspException(ex);
-                } else {
-                    throw new JspException(rc);
-                }
-            }
+    /**
+     * Works out when an absolute import must be complete by.
+     *
+     * @return the deadline, or 0 if there is none
+     */
+    private long deadline() throws JspTagException {
+        int t = timeout;
+        if (t <= 0) {
+            t = getIntParameter(pageContext.getServletContext(), TIMEOUT_PARAM);
+        }
+        return t > 0 ? System.currentTimeMillis() + t : 0;
+    }
+
+    /**
+     * Includes a relative URL using a RequestDispatcher.
+     *
+     * @param out where to stream the content of the target resource to, or null to capture it
+     * @return the response wrapper passed to the target
+     */
+    private ImportResponseWrapper include(Writer out) throws IOException, JspException {
+        // URL is relative, so we must be an HTTP request
+        if (!(pageContext.getRequest() instanceof HttpServletRequest
+                && pageContext.getResponse() instanceof HttpServletResponse)) {
+            throw new JspTagException(
+                    Resources.getMessage("IMPORT_REL_WITHOUT_HTTP"));
+        }
+
+        // retrieve an appropriate ServletContext
+        ServletContext c = null;
+        String targetUrl = normalizeUrl(targetUrl());
+        if (context != null) {
+            c = pageContext.getServletContext().getContext(context);
+        } else {
+            c = pageContext.getServletContext();
+        }
+
+        if (c == null) {
+            throw new JspTagException(
+                    Resources.getMessage(
+                            "IMPORT_REL_WITHOUT_DISPATCHER", context, targetUrl));
+        }
 
-            // disallow inappropriate response codes per JSTL spec
-            if (irw.getStatus() < 200 || irw.getStatus() > 299) {
-                throw new JspTagException(irw.getStatus() + " " +
-                        stripSession(targetUrl));
+        // from this context, get a dispatcher
+        RequestDispatcher rd = c.getRequestDispatcher(stripSession(targetUrl));
+        if (rd == null) {
+            throw new JspTagException(stripSession(targetUrl));
+        }
+
+        // Wrap the response so we capture the capture the output.
+        // This relies on the underlying container to return content even if this is a HEAD
+        // request. Some containers (e.g. Tomcat versions without the fix for
+        // https://bz.apache.org/bugzilla/show_bug.cgi?id=57601 ) may not do that.
+        ImportResponseWrapper irw =
+                new ImportResponseWrapper((HttpServletResponse) pageContext.getResponse(), out);
+
+        // spec mandates specific error handling from include()
+        try {
+            rd.include(pageContext.getRequest(), irw);
+            irw.finish();
+        } catch (IOException | RuntimeException ex) {
+            throw new JspException(ex);
+        } catch (ServletException ex) {
+            Throwable rc = ex.getRootCause();
+            while (rc instanceof ServletException) {
+                rc = ((ServletException) rc).getRootCause();
             }
+            if (rc == null) {
+                throw new JspException(ex);
+            } else {
+                throw new JspException(rc);
+            }
+        } finally {
+            // return pooled buffers if the target failed before they were finished
+            irw.discard();
+        }
 
-            // recover the response String from our wrapper
-            return irw.getString();
+        // disallow inappropriate response codes per JSTL spec
+        if (!irw.isSuccess()) {
+            throw new JspTagException(irw.getStatus() + " " +
+                    stripSession(targetUrl));
         }
+
+        // pass on anything that was held back waiting for the status
+        irw.release();
+        return irw;
     }
 
     private Reader acquireReader() throws IOException, JspException {
         if (!isAbsoluteUrl) {
-            // for relative URLs, delegate to our peer
-            return new StringReader(acquireString());
+            if (cacheTtl > 0) {
+                // for cached relative URLs, delegate to our peer
+                return new StringReader(acquireString());
+            }
+            // read the captured output where it is rather than copying it to a String
+            return include(null).getReader();
         } else {
             // absolute URL
-            String target = targetUrl();
-            try {
-                // handle absolute URLs ourselves, using java.net.URL
-                URL u = new URL(target);
-                URLConnection uc = u.openConnection();
-                InputStream i = uc.getInputStream();
-
-                // okay, we've got a stream; encode it appropriately
-                Reader r = null;
-                String charSet;
-                if (charEncoding != null && !charEncoding.equals("")) {
-                    charSet = charEncoding;
-                } else {
-                    // charSet extracted according to RFC 2045, section 5.1
-                    String contentType = uc.getContentType();
-                    if (contentType != null) {
-                        charSet = Util.getContentTypeAttribute(contentType, "charset");
-                        if (charSet == null) {
-                            charSet = DEFAULT_ENCODING;
-                        }
-                    } else {
-                        charSet = DEFAULT_ENCODING;
+            return openReader(getFetcher(pageContext.getServletContext()), targetUrl(), charEncoding, deadline());
+        }
+    }
+
+    /**
+     * Opens an absolute URL. This does not use any state of the tag so it
+     * may be called from another thread.
+     *
+     * @param fetcher      the fetcher to retrieve the URL with
+     * @param target       the URL, including any parameters
+     * @param charEncoding the 'charEncoding' attribute
+     * @param deadline     when the import must be complete, or 0 for no limit
+     * @return a Reader for the content of the URL
+     * @throws JspException if the URL could not be retrieved
+     */
+    private static Reader openReader(ImportFetcher fetcher, String target, String charEncoding, long deadline)
+            throws JspException {
+        ImportResponse response = null;
+        boolean success = false;
+        try {
+            response = fetch(fetcher, target, deadline);
+            Reader r = new InputStreamReader(response.getInputStream(), getCharset(charEncoding, response));
+            success = true;
+            return r;
+        } catch (IOException ex) {
+            throw new JspException(
+                    Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
+        } catch (RuntimeException ex) {  // because the spec makes us
+            throw new JspException(
+                    Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
+        } finally {
+            if (!success) {
+                close(response);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole content of an absolute URL. The bytes are read in
+     * bulk into an array that grows as they arrive, up to the Content-Length
+     * when it is known, and decoded in a single pass. The Content-Length is
+     * not trusted for the first allocation, which is at most 64K. This does not use any state of the tag so
+     * it may be called from another thread.
+     *
+     * @param fetcher      the fetcher to retrieve the URL with
+     * @param target       the URL, including any parameters
+     * @param charEncoding the 'charEncoding' attribute
+     * @param maxSize      the maximum number of bytes to read, or 0 for no limit
+     * @param deadline     when the import must be complete, or 0 for no limit
+     * @return the content of the URL
+     * @throws JspException if the URL could not be retrieved or is too large
+     */
+    static String fetchString(ImportFetcher fetcher, String target, String charEncoding, int maxSize,
+                              long deadline) throws JspException {
+        if (maxSize <= 0) {
+            maxSize = Integer.MAX_VALUE - 8;
+        }
+        ImportResponse response = null;
+        try {
+            response = fetch(fetcher, target, deadline);
+            long length = response.getContentLength();
+            if (length > maxSize) {
+                throw new JspTagException(Resources.getMessage("IMPORT_TOO_LARGE", target, String.valueOf(maxSize)));
+            }
+            byte[] bytes = new byte[(int) Math.min(length >= 0 ? length : 8192, Math.min(INITIAL_FETCH_SIZE, maxSize))];
+            int count = 0;
+            InputStream in = response.getInputStream();
+            while (true) {
+                if (count == bytes.length) {
+                    // full: see if there is more before growing the array
+                    int b = in.read();
+                    if (b == -1) {
+                        break;
                     }
+                    if (count == maxSize) {
+                        throw new JspTagException(Resources.getMessage("IMPORT_TOO_LARGE", target, String.valueOf(maxSize)));
+                    }
+                    long size = (long) bytes.length * 2 + 1;
+                    if (length > count && length < size) {
+                        // the rest of the declared content fits
+                        size = length;
+                    }
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(size, maxSize));
+                    bytes[count++] = (byte) b;
                 }
-                try {
-                    r = new InputStreamReader(i, charSet);
-                } catch (Exception ex) {
-                    r = new InputStreamReader(i, DEFAULT_ENCODING);
+                int n = in.read(bytes, count, bytes.length - count);
+                if (n == -1) {
+                    break;
                 }
+                count += n;
+            }
+            return new String(bytes, 0, count, getCharset(charEncoding, response));
+        } catch (IOException ex) {
+            throw new JspException(
+                    Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
+        } catch (RuntimeException ex) {  // because the spec makes us
+            throw new JspException(
+                    Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
+        } finally {
+            close(response);
+        }
+    }
 
-                // check response code for HTTP URLs before returning, per spec,
-                // before returning
-                if (uc instanceof HttpURLConnection) {
-                    int status = ((HttpURLConnection) uc).getResponseCode();
-                    if (status < 200 || status > 299) {
-                        throw new JspTagException(status + " " + target);
-                    }
+    /**
+     * Retrieves an absolute URL, checking the response code.
+     */
+    private static ImportResponse fetch(ImportFetcher fetcher, String target, long deadline)
+            throws IOException, JspException {
+        // handle absolute URLs ourselves, using the application's fetcher
+        ImportResponse response = fetcher.fetch(target, Collections.<String, String>emptyMap(), deadline);
+
+        // check response code for HTTP URLs before returning, per spec
+        int status = response.getStatus();
+        if (status != -1 && (status < 200 || status > 299)) {
+            close(response);
+            throw new JspTagException(status + " " + target);
+        }
+        return response;
+    }
+
+    /**
+     * Determines the character set of an absolute URL's content.
+     */
+    private static Charset getCharset(String charEncoding, ImportResponse response) {
+        String charSet;
+        if (charEncoding != null && !charEncoding.equals("")) {
+            charSet = charEncoding;
+        } else {
+            // charSet extracted according to RFC 2045, section 5.1
+            String contentType = response.getContentType();
+            if (contentType != null) {
+                charSet = Util.getContentTypeAttribute(contentType, "charset");
+                if (charSet == null) {
+                    charSet = DEFAULT_ENCODING;
                 }
+            } else {
+                charSet = DEFAULT_ENCODING;
+            }
+        }
+        try {
+            return Charset.forName(charSet);
+        } catch (IllegalArgumentException ex) {
+            return Charset.forName(DEFAULT_ENCODING);
+        }
+    }
 
-                return r;
+    private static void close(ImportResponse response) {
+        if (response != null) {
+            try {
+                response.close();
             } catch (IOException ex) {
-                throw new JspException(
-                        Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
-            } catch (RuntimeException ex) {  // because the spec makes us
-                throw new JspException(
-                        Resources.getMessage("IMPORT_ABS_ERROR", target, ex), ex);
+                // ignore it; the content has been read or we are already reporting a failure
+            }
+        }
+    }
+
+    /**
+     * Returns the fetcher used to retrieve absolute URLs for an application,
+     * creating it from the context initialization parameters the first time.
+     *
+     * @param servletContext the application's context
+     * @return the application's fetcher
+     * @throws JspTagException if the configured fetcher could not be created
+     */
+    static ImportFetcher getFetcher(ServletContext servletContext) throws JspTagException {
+        ImportFetcher fetcher = (ImportFetcher) servletContext.getAttribute(FETCHER_PARAM);
+        if (fetcher == null) {
+            synchronized (ImportSupport.class) {
+                fetcher = (ImportFetcher) servletContext.getAttribute(FETCHER_PARAM);
+                if (fetcher == null) {
+                    fetcher = createFetcher(servletContext);
+                    servletContext.setAttribute(FETCHER_PARAM, fetcher);
+                }
+            }
+        }
+        return fetcher;
+    }
+
+    /**
+     * Returns the cache of rendered relative imports for an application,
+     * creating it the first time.
+     *
+     * @param servletContext the application's context
+     * @return the application's fragment cache
+     * @throws JspTagException if the configured size is invalid
+     */
+    static FragmentCache getFragmentCache(ServletContext servletContext) throws JspTagException {
+        FragmentCache cache = (FragmentCache) servletContext.getAttribute(FRAGMENT_CACHE_ATTRIBUTE);
+        if (cache == null) {
+            synchronized (ImportSupport.class) {
+                cache = (FragmentCache) servletContext.getAttribute(FRAGMENT_CACHE_ATTRIBUTE);
+                if (cache == null) {
+                    int size = getIntParameter(servletContext, FRAGMENT_CACHE_SIZE_PARAM);
+                    cache = new FragmentCache(size > 0 ? size : DEFAULT_FRAGMENT_CACHE_SIZE);
+                    servletContext.setAttribute(FRAGMENT_CACHE_ATTRIBUTE, cache);
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static ImportFetcher createFetcher(ServletContext servletContext) throws JspTagException {
+        ImportFetcher fetcher = createUncachedFetcher(servletContext);
+        int maxEntrySize = getIntParameter(servletContext, CACHE_MAX_ENTRY_SIZE_PARAM);
+        if (maxEntrySize <= 0) {
+            maxEntrySize = DEFAULT_CACHE_MAX_ENTRY_SIZE;
+        }
+        int failureThreshold = getIntParameter(servletContext, FAILURE_THRESHOLD_PARAM);
+        int staleSize = getIntParameter(servletContext, STALE_SIZE_PARAM);
+        if (failureThreshold > 0 || staleSize > 0) {
+            int retryInterval = getIntParameter(servletContext, RETRY_INTERVAL_PARAM);
+            if (retryInterval <= 0) {
+                retryInterval = DEFAULT_RETRY_INTERVAL;
             }
+            fetcher = new ResilientFetcher(fetcher, failureThreshold, retryInterval, staleSize, maxEntrySize);
+        }
+        int cacheSize = getIntParameter(servletContext, CACHE_SIZE_PARAM);
+        if (cacheSize > 0) {
+            fetcher = new CachingFetcher(fetcher, cacheSize, maxEntrySize);
+        }
+        return fetcher;
+    }
+
+    private static ImportFetcher createUncachedFetcher(ServletContext servletContext) throws JspTagException {
+        String className = servletContext.getInitParameter(FETCHER_PARAM);
+        if (className == null) {
+            return new URLConnectionFetcher(
+                    getIntParameter(servletContext, CONNECT_TIMEOUT_PARAM),
+                    getIntParameter(servletContext, READ_TIMEOUT_PARAM),
+                    getIntParameter(servletContext, MAX_CONNECTIONS_PER_HOST_PARAM));
+        }
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                loader = ImportSupport.class.getClassLoader();
+            }
+            return (ImportFetcher) Class.forName(className.trim(), true, loader).getConstructor().newInstance();
+        } catch (Exception ex) {
+            throw new JspTagException(Resources.getMessage("IMPORT_BAD_FETCHER", className), ex);
+        }
+    }
+
+    private static int getIntParameter(ServletContext servletContext, String name) throws JspTagException {
+        String value = servletContext.getInitParameter(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new JspTagException(Resources.getMessage("IMPORT_BAD_PARAMETER", name, value), ex);
         }
     }
 
@@ -397,7 +849,8 @@ public abstract class ImportSupport extends BodyTagSupport
        * uses a Writer.  And we decode the OutputStream's bytes
        * using OUR tag's 'charEncoding' attribute, or ISO-8859-1
        * as the default.  We thus ignore setLocale() and setContentType()
-       * in this wrapper.
+       * in this wrapper.  Bytes are decoded as they are written rather
+       * than accumulated, so only the characters are ever held.
        *
        * In other words, the target's asserted encoding is used
        * to convert from a Writer to an OutputStream, which is typically
@@ -405,50 +858,36 @@ public abstract class ImportSupport extends BodyTagSupport
        * ultimate response.  Since we short-circuit that mechanism
        * and read the target's characters directly if they're offered
        * as such, we simply ignore the target's encoding assertion.
+       *
+       * When given a Writer to stream to, the target's output is
+       * forwarded to it (decoding bytes as they arrive) instead of
+       * being accumulated. The first buffer-full is held back so that
+       * an error status, which the target normally sets before it
+       * starts writing, still results in nothing being emitted.
        */
 
         //************************************************************
         // Data
 
         /**
-         * The Writer we convey.
+         * Where to stream output to, or null to capture it.
          */
-        private StringWriter sw = new StringWriter();
+        private final Writer out;
 
         /**
-         * A buffer, alternatively, to accumulate bytes.
+         * The Writer we convey, and where decoded bytes end up, when capturing.
          */
-        private ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        private StringWriter sw = new StringWriter();
 
         /**
-         * A ServletOutputStream we convey, tied to this Writer.
+         * The Writer used when streaming, holding back the start of the output.
          */
-        private ServletOutputStream sos = new ServletOutputStream() {
-
-            private WriteListener writeListener;
+        private HoldingWriter hw;
 
-            @Override
-            public void write(int b) throws IOException {
-                try {
-                    bos.write(b);
-                } catch ( Exception e ) {
-                    if(this.writeListener!=null) {
-                        this.writeListener.onError( e );
-                    }
-                    throw new IOException(e);
-                }
-            }
-
-            @Override
-            public boolean isReady() {
-                return true;
-            }
-
-            @Override
-            public void setWriteListener( WriteListener writeListener ) {
-                this.writeListener = writeListener;
-            }
-        };
+        /**
+         * The stream we convey, decoding into hw when streaming or sw when capturing.
+         */
+        private DecodingOutputStream dos;
 
         /**
          * 'True' if getWriter() was called; false otherwise.
@@ -470,9 +909,13 @@ public abstract class ImportSupport extends BodyTagSupport
 
         /**
          * Constructs a new ImportResponseWrapper.
+         *
+         * @param response the response to wrap
+         * @param out      where to stream the output to, or null to buffer all of it
          */
-        public ImportResponseWrapper(HttpServletResponse response) {
+        public ImportResponseWrapper(HttpServletResponse response, Writer out) {
             super(response);
+            this.out = out;
         }
 
         /**
@@ -485,6 +928,9 @@ public abstract class ImportSupport extends BodyTagSupport
                         Resources.getMessage("IMPORT_ILLEGAL_STREAM"));
             }
             isWriterUsed = true;
+            if (out != null) {
+                return new PrintWriter(holdingWriter());
+            }
             return new PrintWriter(sw);
         }
 
@@ -492,13 +938,16 @@ public abstract class ImportSupport extends BodyTagSupport
          * Returns a ServletOutputStream designed to buffer the output.
          */
         @Override
-        public ServletOutputStream getOutputStream() {
+        public ServletOutputStream getOutputStream() throws IOException {
             if (isWriterUsed) {
                 throw new IllegalStateException(
                         Resources.getMessage("IMPORT_ILLEGAL_WRITER"));
             }
             isStreamUsed = true;
-            return sos;
+            if (dos == null) {
+                dos = new DecodingOutputStream(out != null ? holdingWriter() : sw, getCharset());
+            }
+            return dos;
         }
 
         /**
@@ -527,24 +976,155 @@ public abstract class ImportSupport extends BodyTagSupport
         }
 
         /**
-         * Retrieves the buffered output, using the containing tag's
-         * 'charEncoding' attribute, or the tag's default encoding,
-         * <b>if necessary</b>.
+         * Returns true if the status set by the target is acceptable per the JSTL spec.
          */
-        // not simply toString() because we need to throw
-        // UnsupportedEncodingException
-        public String getString() throws UnsupportedEncodingException {
-            if (isWriterUsed) {
-                return sw.toString();
-            } else if (isStreamUsed) {
-                if (charEncoding != null && !charEncoding.equals("")) {
-                    return bos.toString(charEncoding);
-                } else {
-                    return bos.toString(DEFAULT_ENCODING);
+        public boolean isSuccess() {
+            return status >= 200 && status <= 299;
+        }
+
+        /**
+         * Completes decoding of any bytes written by the target.
+         */
+        public void finish() throws IOException {
+            if (dos != null) {
+                dos.finish();
+            }
+        }
+
+        /**
+         * Gives up decoding, returning any pooled buffer. Has no effect once
+         * {@link #finish()} has completed.
+         */
+        public void discard() {
+            if (dos != null) {
+                dos.discard();
+            }
+        }
+
+        /**
+         * Forwards any output held back while streaming.
+         */
+        public void release() throws IOException {
+            if (hw != null) {
+                hw.release();
+            }
+        }
+
+        private Writer holdingWriter() {
+            if (hw == null) {
+                int bufferSize = pageContext.getOut().getBufferSize();
+                hw = new HoldingWriter(bufferSize > 0 ? bufferSize : 8192);
+            }
+            return hw;
+        }
+
+        private Charset getCharset() throws UnsupportedEncodingException {
+            String encoding = (charEncoding != null && !charEncoding.equals("")) ? charEncoding : DEFAULT_ENCODING;
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(encoding);
+            }
+        }
+
+        /**
+         * Writer that holds back output until it has seen a buffer-full
+         * and the target has not set an error status, and then streams
+         * the rest directly.
+         */
+        private class HoldingWriter extends Writer {
+            private final int threshold;
+            private CharArrayWriter held;
+
+            HoldingWriter(int threshold) {
+                this.threshold = threshold;
+                this.held = new CharArrayWriter(Math.min(threshold, 1024));
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (held == null) {
+                    out.write(cbuf, off, len);
+                    return;
                 }
-            } else {
-                return "";
-            }        // target didn't write anything
+                if (isSuccess()) {
+                    held.write(cbuf, off, len);
+                    if (held.size() >= threshold) {
+                        release();
+                    }
+                }
+                // else discard: the import will fail once the target is done
+            }
+
+            void release() throws IOException {
+                if (held != null) {
+                    held.writeTo(out);
+                    held = null;
+                }
+            }
+
+            @Override
+            public void flush() {
+                // the page is flushed when the page is ready
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+
+        /**
+         * Retrieves the buffered output. Bytes written by the target have
+         * already been decoded, using the containing tag's 'charEncoding'
+         * attribute or the tag's default encoding, by {@link #finish()}.
+         */
+        public String getString() {
+            return sw.toString();
+        }
+
+        /**
+         * Returns a Reader over the buffered output, without copying it.
+         */
+        public Reader getReader() {
+            final StringBuffer buffer = sw.getBuffer();
+            return new Reader() {
+                private int pos;
+
+                @Override
+                public int read(char[] cbuf, int off, int len) {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    int n = Math.min(len, buffer.length() - pos);
+                    if (n <= 0) {
+                        return -1;
+                    }
+                    buffer.getChars(pos, pos + n, cbuf, off);
+                    pos += n;
+                    return n;
+                }
+
+                @Override
+                public int read() {
+                    return pos < buffer.length() ? buffer.charAt(pos++) : -1;
+                }
+
+                @Override
+                public long skip(long n) {
+                    int skipped = (int) Math.max(0, Math.min(n, buffer.length() - pos));
+                    pos += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public boolean ready() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
         }
     }
 
@@ -572,12 +1152,16 @@ public abstract class ImportSupport extends BodyTagSupport
      * and either EOS or a subsequent ';' (exclusive).
      */
     public static String stripSession(String url) {
+        // nearly all URLs have no session ID
+        if (url.indexOf(";jsessionid=") == -1) {
+            return url;
+        }
         StringBuilder u = new StringBuilder(url);
         int sessionStart;
-        while ((sessionStart = u.toString().indexOf(";jsessionid=")) != -1) {
-            int sessionEnd = u.toString().indexOf(";", sessionStart + 1);
+        while ((sessionStart = u.indexOf(";jsessionid=")) != -1) {
+            int sessionEnd = u.indexOf(";", sessionStart + 1);
             if (sessionEnd == -1) {
-                sessionEnd = u.toString().indexOf("?", sessionStart + 1);
+                sessionEnd = u.indexOf("?", sessionStart + 1);
             }
             if (sessionEnd == -1)                 // still
             {
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import jakarta.servlet.jsp.JspWriter;
+
+import org.apache.taglibs.standard.util.Encoder;
+
+/**
+ * Writer used by &lt;c:out&gt; to copy its body content to the enclosing
+ * JspWriter, escaping it on the way, without first converting it to a String.
+ * <p>The result is the same as emitting <code>body.trim()</code>: leading
+ * whitespace is dropped until the first significant character is seen and
+ * trailing whitespace is held back until we know it is followed by
+ * something else.</p>
+ */
+class OutBodyWriter extends Writer {
+
+    private final JspWriter out;
+    private final Encoder encoder;  // null if the body is not escaped
+
+    // true once a non-whitespace character has been written
+    private boolean started;
+
+    // whitespace seen at the end of a previous write that may yet be trailing
+    private StringBuilder pending;
+
+    OutBodyWriter(JspWriter out, Encoder encoder) {
+        this.out = out;
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        if (!started) {
+            while (off < end && isWhitespace(cbuf[off])) {
+                off++;
+            }
+            if (off == end) {
+                return;
+            }
+            started = true;
+        }
+
+        int last = end;
+        while (last > off && isWhitespace(cbuf[last - 1])) {
+            last--;
+        }
+        if (last > off) {
+            if (pending != null && pending.length() > 0) {
+                String whitespace = pending.toString();
+                pending.setLength(0);
+                if (encoder != null) {
+                    encoder.emit(whitespace, out);
+                } else {
+                    out.write(whitespace);
+                }
+            }
+            if (encoder != null) {
+                encoder.emit(cbuf, off, last - off, out);
+            } else {
+                out.write(cbuf, off, last - off);
+            }
+        }
+        if (last < end) {
+            if (pending == null) {
+                pending = new StringBuilder();
+            }
+            pending.append(cbuf, last, end - last);
+        }
+    }
+
+    /**
+     * Body content is trimmed so nested flushes are not propagated.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Discards any trailing whitespace; the enclosing writer stays open.
+     */
+    @Override
+    public void close() {
+        pending = null;
+    }
+
+    // same definition of whitespace as String.trim()
+    private static boolean isWhitespace(char c) {
+        return c <= ' ';
+    }
+}
@@ -23,6 +23,8 @@ import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.JspTagException;
 import jakarta.servlet.jsp.tagext.BodyTagSupport;
 
+import org.apache.taglibs.standard.resources.Resources;
+import org.apache.taglibs.standard.util.Encoder;
 import org.apache.taglibs.standard.util.EscapeXML;
 
 /**
@@ -31,6 +33,9 @@ import org.apache.taglibs.standard.util.EscapeXML;
  * null, we print the value of the 'default' attribute's expression or
  * our body (which two are mutually exclusive, although this constraint
  * is enforced outside this handler, in our TagLibraryValidator).</p>
+ * <p>The buffered body is copied to the enclosing writer through an
+ * {@link OutBodyWriter} that escapes and trims it as it goes, rather than
+ * being converted to a String and trimmed first.</p>
  *
  * @author Shawn Bayern
  */
@@ -87,9 +92,9 @@ public abstract class OutSupport extends BodyTagSupport {
             return SKIP_BODY;
         }
 
-        // output body as default
-        output = ""; // need to reset as doAfterBody will not be called with an empty tag
-        // TODO: to avoid buffering, can we wrap out in a filter that performs escaping and use EVAL_BODY_INCLUDE?
+        // output body as default; it must be buffered so that template text
+        // in the body is escaped as well as the output of nested tags
+        output = ""; // need to reset as the body is not evaluated for an empty tag
         return EVAL_BODY_BUFFERED;
     }
 
@@ -117,21 +122,53 @@ public abstract class OutSupport extends BodyTagSupport {
      */
     protected abstract boolean evalEscapeXml() throws JspException;
 
-    @Override
-    public int doAfterBody() throws JspException {
-        output = bodyContent.getString().trim();
-        return SKIP_BODY;
+    /**
+     * Evaluates the "escapeMode" attribute.
+     * Tags that do not support this attribute should return null.
+     *
+     * @return the actual value of the "escapeMode" attribute
+     * @throws JspException if there was a problem evaluating the expression
+     */
+    protected String evalEscapeMode() throws JspException {
+        return null;
+    }
+
+    /**
+     * Returns the encoder selected by the "escapeMode" and "escapeXml" attributes.
+     *
+     * @return the encoder to apply, or null if output should not be escaped
+     * @throws JspException if there was a problem evaluating the attributes
+     */
+    private Encoder getEncoder() throws JspException {
+        String escapeMode = evalEscapeMode();
+        if (escapeMode == null) {
+            return evalEscapeXml() ? Encoder.XML : null;
+        }
+        Encoder encoder = Encoder.forName(escapeMode);
+        if (encoder == null) {
+            throw new JspTagException(Resources.getMessage("OUT_BAD_ESCAPE_MODE", escapeMode));
+        }
+        return encoder;
     }
 
     @Override
     public int doEndTag() throws JspException {
         try {
-            boolean escapeXml = evalEscapeXml();
-            EscapeXML.emit(output, escapeXml, pageContext.getOut());
+            Encoder encoder = getEncoder();
+            if (bodyContent != null) {
+                OutBodyWriter writer = new OutBodyWriter(pageContext.getOut(), encoder);
+                bodyContent.writeOut(writer);
+                writer.close();
+            } else if (encoder == null) {
+                EscapeXML.emit(output, false, pageContext.getOut());
+            } else {
+                encoder.emit(output, pageContext.getOut());
+            }
         } catch (IOException e) {
             throw new JspTagException(e);
         } finally {
             output = null;
+            bodyContent = null;
         }
         return EVAL_PAGE;
     }
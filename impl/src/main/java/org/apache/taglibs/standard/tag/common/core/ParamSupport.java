@@ -17,10 +17,8 @@
 
 package org.apache.taglibs.standard.tag.common.core;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.LinkedList;
-import java.util.List;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.JspTagException;
@@ -28,6 +26,7 @@ import jakarta.servlet.jsp.tagext.BodyTagSupport;
 import jakarta.servlet.jsp.tagext.Tag;
 
 import org.apache.taglibs.standard.resources.Resources;
+import org.apache.taglibs.standard.util.UrlUtil;
 
 /**
  * <p>Support for tag handlers for &lt;param&gt;, the URL parameter
@@ -95,11 +94,13 @@ public abstract class ParamSupport extends BodyTagSupport {
         }
         if (encode) {
             String enc = pageContext.getResponse().getCharacterEncoding();
+            Charset charset;
             try {
-                parent.addParameter(URLEncoder.encode(name, enc), URLEncoder.encode(value, enc));
-            } catch (UnsupportedEncodingException e) {
+                charset = Charset.forName(enc);
+            } catch (IllegalArgumentException e) {
                 throw new JspTagException(e);
             }
+            parent.addParameter(UrlUtil.encode(name, charset), UrlUtil.encode(value, charset));
         } else {
             parent.addParameter(name, value);
         }
@@ -127,8 +128,9 @@ public abstract class ParamSupport extends BodyTagSupport {
         //*********************************
         // Private state
 
-        private List<String> names = new LinkedList();
-        private List<String> values = new LinkedList();
+        private String[] names = new String[4];
+        private String[] values = new String[4];
+        private int size;
         private boolean done = false;
 
         //*********************************
@@ -142,12 +144,13 @@ public abstract class ParamSupport extends BodyTagSupport {
                 throw new IllegalStateException();
             }
             if (name != null) {
-                names.add(name);
-                if (value != null) {
-                    values.add(value);
-                } else {
-                    values.add("");
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                    values = Arrays.copyOf(values, size * 2);
                 }
+                names[size] = name;
+                values[size] = (value != null) ? value : "";
+                size++;
             }
         }
 
@@ -156,6 +159,15 @@ public abstract class ParamSupport extends BodyTagSupport {
          * order.
          */
         public String aggregateParams(String url) {
+            return aggregateParams("", url);
+        }
+
+        /**
+         * Produces a new URL from a prefix, such as a context path, and a
+         * URL, with the stored parameters in the appropriate order. The
+         * result is built in a single, exactly sized buffer.
+         */
+        public String aggregateParams(String prefix, String url) {
             /*
             * Since for efficiency we're destructive to the param lists,
             * we don't want to run multiple times.
@@ -165,31 +177,38 @@ public abstract class ParamSupport extends BodyTagSupport {
             }
             done = true;
 
-            //// reverse the order of our two lists
-            // Collections.reverse(this.names);
-            // Collections.reverse(this.values);
+            if (size == 0) {
+                return prefix.length() == 0 ? url : prefix.concat(url);
+            }
 
-            // build a string from the parameter list
-            StringBuilder newParams = new StringBuilder();
-            for (int i = 0; i < names.size(); i++) {
-                newParams.append(names.get(i)).append('=').append(values.get(i));
-                if (i < (names.size() - 1)) {
-                    newParams.append("&");
-                }
+            // work out the length of the result: each parameter is
+            // "name=value" followed by a separator, either '&' or the
+            // '?' that starts the query string
+            int length = prefix.length() + url.length();
+            for (int i = 0; i < size; i++) {
+                length += names[i].length() + values[i].length() + 2;
             }
+            StringBuilder result = new StringBuilder(length);
+            result.append(prefix);
 
             // insert these parameters into the URL as appropriate
-            if (newParams.length() > 0) {
-                int questionMark = url.indexOf('?');
-                if (questionMark == -1) {
-                    return (url + "?" + newParams);
-                } else {
-                    StringBuilder workingUrl = new StringBuilder(url);
-                    workingUrl.insert(questionMark + 1, (newParams + "&"));
-                    return workingUrl.toString();
-                }
+            int questionMark = url.indexOf('?');
+            if (questionMark == -1) {
+                result.append(url).append('?');
+                appendParams(result);
+                result.setLength(result.length() - 1);
             } else {
-                return url;
+                result.append(url, 0, questionMark + 1);
+                appendParams(result);
+                result.append(url, questionMark + 1, url.length());
+            }
+            return result.toString();
+        }
+
+        // appends every parameter, each followed by '&'
+        private void appendParams(StringBuilder result) {
+            for (int i = 0; i < size; i++) {
+                result.append(names[i]).append('=').append(values[i]).append('&');
             }
         }
     }
@@ -104,8 +104,7 @@ public abstract class RedirectSupport extends BodyTagSupport
         String result;                // the eventual result
 
         // add (already encoded) parameters
-        String baseUrl = UrlSupport.resolveUrl(url, context, pageContext);
-        result = params.aggregateParams(baseUrl);
+        result = params.aggregateParams(UrlSupport.contextPrefix(url, context, pageContext), url);
 
         // if the URL is relative, rewrite it with 'redirect' encoding rules
         HttpServletResponse response =
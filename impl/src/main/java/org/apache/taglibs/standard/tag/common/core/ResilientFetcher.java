@@ -0,0 +1,471 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.taglibs.standard.resources.Resources;
+
+/**
+ * <p>An {@link ImportFetcher} that protects pages from a failing upstream
+ * host with a circuit breaker, and can fall back to the last good content
+ * of a URL.</p>
+ *
+ * <p>The outcome of the most recent requests to each host is recorded;
+ * connection failures, timeouts and 5xx responses count as errors, as do
+ * failures while reading the content, which is why the outcome of a
+ * response is only recorded once it has been read to the end or closed. Once
+ * the error rate reaches the threshold the circuit for that host opens
+ * and requests fail straight away, without waiting on the host. After the
+ * retry interval a single trial request is let through; if it succeeds
+ * the circuit closes again.</p>
+ *
+ * <p>If enabled, the content of the last successful response for each URL
+ * is kept as it is read, and served in place of a request that fails or
+ * is refused by an open circuit.</p>
+ *
+ * <p>The state of each host's circuit is available from {@link #getStates()}.
+ * The fetcher of an application is held in the context attribute named by
+ * {@link ImportSupport#FETCHER_PARAM}; when responses are also cached it is
+ * wrapped in a {@link CachingFetcher}, from which it is obtained with
+ * {@link CachingFetcher#getFetcher()}.</p>
+ */
+public class ResilientFetcher implements ImportFetcher {
+
+    /**
+     * The state of a host's circuit.
+     */
+    public enum State {
+        /**
+         * Requests are made normally.
+         */
+        CLOSED,
+        /**
+         * Requests fail without being made.
+         */
+        OPEN,
+        /**
+         * A single trial request is being made to see if the host has recovered.
+         */
+        HALF_OPEN
+    }
+
+    // number of outcomes remembered for each host
+    private static final int WINDOW = 20;
+
+    // outcomes needed before the error rate is considered
+    private static final int MINIMUM_REQUESTS = 10;
+
+    private final ImportFetcher fetcher;
+    private final int failureThreshold;
+    private final long retryInterval;
+    private final int maxEntrySize;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final Map<String, LastGood> lastGood;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+
+    /**
+     * Creates a fetcher.
+     *
+     * @param fetcher          the fetcher that makes the requests
+     * @param failureThreshold the error rate, as a percentage, at which a host's
+     *                         circuit opens, or 0 to never open it
+     * @param retryInterval    how long a circuit stays open before a trial
+     *                         request, in milliseconds
+     * @param staleEntries     the number of URLs whose last good content is kept, or 0 for none
+     * @param maxEntrySize     the size in bytes of the largest content to keep
+     */
+    public ResilientFetcher(ImportFetcher fetcher, int failureThreshold, long retryInterval,
+                            final int staleEntries, int maxEntrySize) {
+        this.fetcher = fetcher;
+        this.failureThreshold = failureThreshold;
+        this.retryInterval = retryInterval;
+        this.maxEntrySize = maxEntrySize;
+        if (staleEntries > 0) {
+            lastGood = Collections.synchronizedMap(new LinkedHashMap<String, LastGood>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LastGood> eldest) {
+                    return size() > staleEntries;
+                }
+            });
+        } else {
+            lastGood = null;
+        }
+    }
+
+    /**
+     * Returns the fetcher that makes the requests.
+     *
+     * @return the underlying fetcher
+     */
+    public ImportFetcher getFetcher() {
+        return fetcher;
+    }
+
+    public ImportResponse fetch(String url, Map<String, String> headers) throws IOException {
+        return fetch(url, headers, 0);
+    }
+
+    @Override
+    public ImportResponse fetch(String url, Map<String, String> headers, long deadline) throws IOException {
+        String host = host(url);
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            Circuit created = new Circuit();
+            circuit = circuits.putIfAbsent(host, created);
+            if (circuit == null) {
+                circuit = created;
+            }
+        }
+
+        if (!circuit.allowRequest(System.currentTimeMillis())) {
+            rejected.incrementAndGet();
+            ImportResponse stale = stale(url);
+            if (stale != null) {
+                return stale;
+            }
+            throw new IOException(Resources.getMessage("IMPORT_CIRCUIT_OPEN", host));
+        }
+
+        ImportResponse response;
+        try {
+            response = fetcher.fetch(url, headers, deadline);
+        } catch (IOException | RuntimeException e) {
+            circuit.record(false, System.currentTimeMillis());
+            ImportResponse stale = stale(url);
+            if (stale != null) {
+                return stale;
+            }
+            throw e;
+        }
+
+        int status = response.getStatus();
+        if (status >= 500) {
+            circuit.record(false, System.currentTimeMillis());
+            ImportResponse stale = stale(url);
+            if (stale != null) {
+                response.close();
+                return stale;
+            }
+            return response;
+        }
+        // the outcome is only known once the content has been read
+        boolean keep = lastGood != null && headers.isEmpty() && (status == -1 || (status >= 200 && status <= 299));
+        return new Tracked(url, response, circuit, keep);
+    }
+
+    /**
+     * Returns the state of the circuit for each host that has been contacted.
+     * Hosts are identified as <code>host:port</code>.
+     *
+     * @return the state of each host's circuit
+     */
+    public Map<String, State> getStates() {
+        Map<String, State> states = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Circuit> entry : circuits.entrySet()) {
+            states.put(entry.getKey(), entry.getValue().getState(now));
+        }
+        return states;
+    }
+
+    /**
+     * Returns the number of requests refused because a circuit was open.
+     *
+     * @return the number of requests refused
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the number of times the last good content was served in place of a failed request.
+     *
+     * @return the number of stale responses served
+     */
+    public long getStaleCount() {
+        return staleServed.get();
+    }
+
+    private ImportResponse stale(String url) {
+        if (lastGood == null) {
+            return null;
+        }
+        LastGood entry = lastGood.get(url);
+        if (entry == null) {
+            return null;
+        }
+        staleServed.incrementAndGet();
+        return entry.response();
+    }
+
+    private static String host(String url) {
+        try {
+            URI uri = new URI(url);
+            return uri.getHost() + ':' + uri.getPort();
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    /**
+     * Circuit breaker for one host.
+     */
+    private class Circuit {
+        private final boolean[] outcomes = new boolean[WINDOW];
+        private int count;
+        private int next;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openedAt;
+
+        synchronized boolean allowRequest(long now) {
+            switch (getState(now)) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    return false;
+                default:
+                    if (state == State.OPEN) {
+                        // the first request after the retry interval is the trial
+                        state = State.HALF_OPEN;
+                        return true;
+                    }
+                    return false;
+            }
+        }
+
+        synchronized State getState(long now) {
+            if (state == State.OPEN && now - openedAt >= retryInterval) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized void record(boolean success, long now) {
+            if (state == State.HALF_OPEN) {
+                if (success) {
+                    state = State.CLOSED;
+                    count = next = failures = 0;
+                } else {
+                    open(now);
+                }
+                return;
+            }
+
+            if (count == WINDOW) {
+                if (!outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                count++;
+            }
+            outcomes[next] = success;
+            next = (next + 1) % WINDOW;
+            if (!success) {
+                failures++;
+                if (failureThreshold > 0 && count >= MINIMUM_REQUESTS
+                        && failures * 100 >= failureThreshold * count) {
+                    open(now);
+                }
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+            count = next = failures = 0;
+        }
+    }
+
+    private static class LastGood {
+        private final byte[] content;
+        private final String contentType;
+
+        LastGood(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType;
+        }
+
+        ImportResponse response() {
+            return new ImportResponse() {
+                public int getStatus() {
+                    return 200;
+                }
+
+                public String getHeader(String name) {
+                    return "Content-Type".equalsIgnoreCase(name) ? contentType : null;
+                }
+
+                public String getContentType() {
+                    return contentType;
+                }
+
+                public long getContentLength() {
+                    return content.length;
+                }
+
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(content);
+                }
+
+                public void close() {
+                }
+            };
+        }
+    }
+
+    /**
+     * A response whose outcome is recorded once its content has been read
+     * to the end or the response closed, and whose content may be kept as
+     * the last good content of its URL.
+     */
+    private class Tracked implements ImportResponse {
+        private final String url;
+        private final ImportResponse response;
+        private final Circuit circuit;
+        private ByteArrayOutputStream copy;
+        private boolean finished;
+        private InputStream in;
+
+        Tracked(String url, ImportResponse response, Circuit circuit, boolean keep) {
+            this.url = url;
+            this.response = response;
+            this.circuit = circuit;
+            this.copy = keep ? new ByteArrayOutputStream() : null;
+        }
+
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        public String getContentType() {
+            return response.getContentType();
+        }
+
+        public long getContentLength() {
+            return response.getContentLength();
+        }
+
+        public InputStream getInputStream() throws IOException {
+            if (in == null) {
+                InputStream stream;
+                try {
+                    stream = response.getInputStream();
+                } catch (IOException | RuntimeException e) {
+                    finish(false);
+                    throw e;
+                }
+                in = new FilterInputStream(stream) {
+                    @Override
+                    public int read() throws IOException {
+                        int b;
+                        try {
+                            b = super.read();
+                        } catch (IOException | RuntimeException e) {
+                            finish(false);
+                            throw e;
+                        }
+                        if (b == -1) {
+                            keep();
+                            finish(true);
+                        } else if (copy != null) {
+                            copy.write(b);
+                            checkSize();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n;
+                        try {
+                            n = super.read(b, off, len);
+                        } catch (IOException | RuntimeException e) {
+                            finish(false);
+                            throw e;
+                        }
+                        if (n == -1) {
+                            keep();
+                            finish(true);
+                        } else if (copy != null) {
+                            copy.write(b, off, n);
+                            checkSize();
+                        }
+                        return n;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        Tracked.this.close();
+                    }
+                };
+            }
+            return in;
+        }
+
+        public void close() throws IOException {
+            try {
+                response.close();
+            } finally {
+                // closing early is the reader's choice, not a failure of the host
+                finish(true);
+            }
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxEntrySize) {
+                copy = null;
+            }
+        }
+
+        private void keep() {
+            if (copy != null) {
+                lastGood.put(url, new LastGood(copy.toByteArray(), response.getContentType()));
+                copy = null;
+            }
+        }
+
+        private void finish(boolean success) {
+            if (!finished) {
+                finished = true;
+                copy = null;
+                circuit.record(success, System.currentTimeMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.taglibs.standard.resources.Resources;
+
+/**
+ * <p>The default {@link ImportFetcher}, built on <code>java.net.URLConnection</code>.</p>
+ *
+ * <p>Connect and read timeouts are applied to every connection, and the
+ * number of concurrent requests to any one host can be bounded so that a
+ * slow upstream cannot tie up every request thread. A request over the
+ * limit waits for a permit no longer than the connect timeout or the
+ * request's deadline allows, and fails at once when neither is set. A
+ * request's deadline
+ * caps both timeouts and is checked again before each read of the
+ * content. HTTP connections are
+ * kept alive and reused by the JRE once their content has been read and
+ * the stream closed, so responses should always be read to the end.</p>
+ */
+public class URLConnectionFetcher implements ImportFetcher {
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxConnectionsPerHost;
+
+    // hosts with requests in progress or waiting; guarded by itself
+    final Map<String, Host> hosts = new HashMap<>();
+
+    /**
+     * Creates a fetcher using the JRE's default timeouts and no limit on concurrent requests.
+     */
+    public URLConnectionFetcher() {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Creates a fetcher.
+     *
+     * @param connectTimeout        the connect timeout in milliseconds, or 0 for none
+     * @param readTimeout           the read timeout in milliseconds, or 0 for none
+     * @param maxConnectionsPerHost the maximum number of concurrent requests to a host, or 0 for no limit
+     */
+    public URLConnectionFetcher(int connectTimeout, int readTimeout, int maxConnectionsPerHost) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public ImportResponse fetch(String url, Map<String, String> headers) throws IOException {
+        return fetch(url, headers, 0);
+    }
+
+    @Override
+    public ImportResponse fetch(String url, Map<String, String> headers, long deadline) throws IOException {
+        URL u = new URL(url);
+        Host permits = acquire(u, deadline);
+        try {
+            URLConnection uc = u.openConnection();
+            uc.setConnectTimeout(timeout(connectTimeout, deadline));
+            uc.setReadTimeout(timeout(readTimeout, deadline));
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                uc.setRequestProperty(header.getKey(), header.getValue());
+            }
+            uc.connect();
+            int status = -1;
+            if (uc instanceof HttpURLConnection) {
+                status = ((HttpURLConnection) uc).getResponseCode();
+            }
+            Response response = new Response(uc, status, permits, deadline);
+            permits = null;
+            return response;
+        } finally {
+            if (permits != null) {
+                release(permits);
+            }
+        }
+    }
+
+    /**
+     * Obtains a permit to connect to the host of a URL.
+     *
+     * @return the host the permit was obtained for, or null if connections are not limited
+     */
+    private Host acquire(URL u, long deadline) throws IOException {
+        if (maxConnectionsPerHost <= 0) {
+            return null;
+        }
+        String name = u.getHost() + ':' + u.getPort();
+        Host host;
+        synchronized (hosts) {
+            host = hosts.get(name);
+            if (host == null) {
+                host = new Host(name, maxConnectionsPerHost);
+                hosts.put(name, host);
+            }
+            host.users++;
+        }
+        boolean acquired = false;
+        try {
+            // wait no longer than we would for the connection itself, and
+            // not at all if nothing bounds that wait
+            int wait = timeout(connectTimeout, deadline);
+            if (wait > 0) {
+                acquired = host.permits.tryAcquire(wait, TimeUnit.MILLISECONDS);
+            } else {
+                acquired = host.permits.tryAcquire();
+            }
+            if (!acquired) {
+                throw new IOException(Resources.getMessage("IMPORT_TOO_MANY_REQUESTS", u.getHost()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            if (!acquired) {
+                leave(host);
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Returns a permit obtained by {@link #acquire}.
+     */
+    private void release(Host host) {
+        host.permits.release();
+        leave(host);
+    }
+
+    // forgets a host once no request uses it, so that only hosts in use are kept
+    private void leave(Host host) {
+        synchronized (hosts) {
+            if (--host.users == 0) {
+                hosts.remove(host.name);
+            }
+        }
+    }
+
+    /**
+     * Works out a timeout that does not run past a deadline.
+     *
+     * @param timeout  the configured timeout, or 0 for none
+     * @param deadline the deadline, or 0 for none
+     * @return the timeout to use, or 0 for none
+     * @throws SocketTimeoutException if the deadline has already passed
+     */
+    private static int timeout(int timeout, long deadline) throws SocketTimeoutException {
+        if (deadline == 0) {
+            return timeout;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Deadline exceeded");
+        }
+        if (timeout > 0 && timeout < remaining) {
+            return timeout;
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    private static final class Host {
+        private final String name;
+        private final Semaphore permits;
+        private int users;
+
+        Host(String name, int permits) {
+            this.name = name;
+            this.permits = new Semaphore(permits);
+        }
+    }
+
+    private class Response implements ImportResponse {
+        private final URLConnection uc;
+        private final int status;
+        private final long deadline;
+        private Host permits;
+        private InputStream stream;
+        private InputStream in;
+
+        Response(URLConnection uc, int status, Host permits, long deadline) {
+            this.uc = uc;
+            this.status = status;
+            this.permits = permits;
+            this.deadline = deadline;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getHeader(String name) {
+            return uc.getHeaderField(name);
+        }
+
+        public String getContentType() {
+            return uc.getContentType();
+        }
+
+        public long getContentLength() {
+            return uc.getContentLengthLong();
+        }
+
+        public InputStream getInputStream() throws IOException {
+            if (in == null) {
+                if (status >= 400) {
+                    // read the error body so the connection can be reused
+                    stream = ((HttpURLConnection) uc).getErrorStream();
+                    if (stream == null) {
+                        stream = new ByteArrayInputStream(new byte[0]);
+                    }
+                } else {
+                    stream = uc.getInputStream();
+                }
+                in = new FilterInputStream(stream) {
+                    @Override
+                    public int read() throws IOException {
+                        timeout(0, deadline);
+                        return super.read();
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        timeout(0, deadline);
+                        return super.read(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        Response.this.close();
+                    }
+                };
+            }
+            return in;
+        }
+
+        public void close() throws IOException {
+            try {
+                if (stream != null) {
+                    stream.close();
+                } else if (uc instanceof HttpURLConnection) {
+                    // nothing was read so the connection cannot be reused
+                    ((HttpURLConnection) uc).disconnect();
+                }
+            } finally {
+                if (permits != null) {
+                    release(permits);
+                    permits = null;
+                }
+            }
+        }
+    }
+}
@@ -109,8 +109,7 @@ public abstract class UrlSupport extends BodyTagSupport
         String result;                // the eventual result
 
         // add (already encoded) parameters
-        String baseUrl = resolveUrl(value, context, pageContext);
-        result = params.aggregateParams(baseUrl);
+        result = params.aggregateParams(contextPrefix(value, context, pageContext), value);
 
         // if the URL is relative, rewrite it
         if (!UrlUtil.isAbsoluteUrl(result)) {
@@ -146,9 +145,20 @@ public abstract class UrlSupport extends BodyTagSupport
     public static String resolveUrl(
             String url, String context, PageContext pageContext)
             throws JspException {
+        String prefix = contextPrefix(url, context, pageContext);
+        return prefix.length() == 0 ? url : prefix.concat(url);
+    }
+
+    /**
+     * Returns what {@link #resolveUrl} puts in front of a URL, so that
+     * callers can build the full URL in one go.
+     */
+    static String contextPrefix(
+            String url, String context, PageContext pageContext)
+            throws JspException {
         // don't touch absolute URLs
         if (UrlUtil.isAbsoluteUrl(url)) {
-            return url;
+            return "";
         }
 
         // normalize relative URLs against a context root
@@ -156,9 +166,9 @@ public abstract class UrlSupport extends BodyTagSupport
                 (HttpServletRequest) pageContext.getRequest();
         if (context == null) {
             if (url.startsWith("/")) {
-                return (request.getContextPath() + url);
+                return request.getContextPath();
             } else {
-                return url;
+                return "";
             }
         } else {
             if (!context.startsWith("/") || !url.startsWith("/")) {
@@ -170,9 +180,9 @@ public abstract class UrlSupport extends BodyTagSupport
                 // browsers interpret this as host name, not as
                 // path on same host. Bug 22860
                 // Also avoid // inside the url. Bug 34109
-                return (context.substring(0, context.length() - 1) + url);
+                return context.substring(0, context.length() - 1);
             } else {
-                return (context + url);
+                return context;
             }
         }
     }
@@ -18,15 +18,20 @@
 package org.apache.taglibs.standard.tag.common.core;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
 import java.util.Vector;
 
+import jakarta.servlet.ServletRequestWrapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.PageContext;
 
 import org.apache.taglibs.standard.resources.Resources;
+import org.apache.taglibs.standard.util.ConcurrentCache;
 
 /**
  * <p>Utilities in support of tag-handler classes.</p>
@@ -44,6 +49,17 @@ public class Util {
     private static final String LONG = "long";
     private static final String FULL = "full";
 
+    /**
+     * Name of the request attribute holding the client's preferred locales,
+     * as returned by {@link #getRequestLocaleList(HttpServletRequest)}.
+     */
+    public static final String REQUEST_LOCALES = "org.apache.taglibs.standard.requestLocales";
+
+    private static final int LOCALES_CACHE_SIZE = 1000;
+
+    // preferred locales for each Accept-Language header value
+    private static final ConcurrentCache<String, List<Locale>> LOCALES = new ConcurrentCache<>(LOCALES_CACHE_SIZE);
+
     /*
      * Converts the given string description of a scope to the corresponding
      * PageContext constant.
@@ -155,22 +171,55 @@ public class Util {
      * locale will be able to kick in.
      */
     public static Enumeration getRequestLocales(HttpServletRequest request) {
+        return Collections.enumeration(getRequestLocaleList(request));
+    }
+
+    /**
+     * Returns the client's preferred locales, in order of preference, or an
+     * empty list if the request did not specify a preferred language.
+     * The list is kept in the {@link #REQUEST_LOCALES} request attribute for
+     * later calls, and is shared between requests with the same
+     * <code>Accept-Language</code> header; it can not be modified.
+     * Wrapped requests may compute their locales differently, so their
+     * lists are never shared.
+     *
+     * @param request the request
+     * @return the preferred locales
+     */
+    public static List<Locale> getRequestLocaleList(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        List<Locale> locales = (List<Locale>) request.getAttribute(REQUEST_LOCALES);
+        if (locales != null) {
+            return locales;
+        }
+
         Enumeration values = request.getHeaders("accept-language");
-        if (values == null) {
-            // No header for "accept-language". Simply return
-            // a new empty enumeration.
-            // System.out.println("Null accept-language");
-            return Collections.emptyEnumeration();
-        } else if (values.hasMoreElements()) {
-            // At least one "accept-language". Simply return
-            // the enumeration returned by request.getLocales().
-            // System.out.println("At least one accept-language");
-            return request.getLocales();
+        if (values == null || !values.hasMoreElements()) {
+            // No header for "accept-language"
+            locales = Collections.emptyList();
         } else {
-            // No header for "accept-language". Simply return
-            // the empty enumeration.
-            // System.out.println("No accept-language");
-            return values;
+            String header = (String) values.nextElement();
+            if (values.hasMoreElements() || request instanceof ServletRequestWrapper) {
+                // the container combines several headers, or a wrapper may
+                // override getLocales(); don't share those
+                locales = toList(request.getLocales());
+            } else {
+                locales = LOCALES.get(header);
+                if (locales == null) {
+                    locales = toList(request.getLocales());
+                    LOCALES.put(header, locales);
+                }
+            }
+        }
+        request.setAttribute(REQUEST_LOCALES, locales);
+        return locales;
+    }
+
+    private static List<Locale> toList(Enumeration values) {
+        List<Locale> locales = new ArrayList<>(4);
+        while (values.hasMoreElements()) {
+            locales.add((Locale) values.nextElement());
         }
+        return Collections.unmodifiableList(locales);
     }
 }
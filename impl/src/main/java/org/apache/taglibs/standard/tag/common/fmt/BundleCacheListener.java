@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * <p>Registers the bundle cache of an application with the platform MBean
+ * server, so that its statistics can be watched and bundles invalidated
+ * through JMX.</p>
+ *
+ * <p>Registration is enabled by setting the context initialization
+ * parameter named by {@link #MBEAN_PARAM} to <code>true</code>. The cache is
+ * registered under the name
+ * <code>org.apache.taglibs.standard:type=LocalizationContextCache,host=<i>server</i>,context=<i>path</i></code>,
+ * where <i>server</i> is the virtual server of the application, and
+ * unregistered when the application is stopped.</p>
+ */
+public class BundleCacheListener implements ServletContextListener {
+
+    /**
+     * Name of the context initialization parameter that enables registration
+     * of the bundle cache with JMX.
+     */
+    public static final String MBEAN_PARAM = "org.apache.taglibs.standard.fmt.bundleCacheMBean";
+
+    private static final String DOMAIN = "org.apache.taglibs.standard";
+
+    // the name this listener registered the cache under, if any
+    private volatile ObjectName registered;
+
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext servletContext = event.getServletContext();
+        if (!Boolean.parseBoolean(servletContext.getInitParameter(MBEAN_PARAM))) {
+            return;
+        }
+        LocalizationContextCache cache = BundleSupport.getCache(servletContext);
+        if (cache == null) {
+            return;
+        }
+        try {
+            ObjectName name = getObjectName(servletContext);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(cache, name);
+            registered = name;
+        } catch (JMException e) {
+            servletContext.log("Unable to register the bundle cache with JMX", e);
+        }
+    }
+
+    public void contextDestroyed(ServletContextEvent event) {
+        ObjectName name = registered;
+        if (name == null) {
+            return;
+        }
+        registered = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            event.getServletContext().log("Unable to unregister the bundle cache from JMX", e);
+        }
+    }
+
+    /**
+     * Returns the name the bundle cache of an application is registered under.
+     *
+     * @param servletContext the application
+     * @return the name
+     * @throws JMException if the name is not valid
+     */
+    static ObjectName getObjectName(ServletContext servletContext) throws JMException {
+        String host = servletContext.getVirtualServerName();
+        String path = servletContext.getContextPath();
+        return new ObjectName(DOMAIN + ":type=LocalizationContextCache,host="
+                + ObjectName.quote(host == null ? "" : host) + ",context="
+                + ObjectName.quote(path == null || path.isEmpty() ? "/" : path));
+    }
+}
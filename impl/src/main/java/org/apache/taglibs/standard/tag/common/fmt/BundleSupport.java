@@ -17,11 +17,12 @@
 
 package org.apache.taglibs.standard.tag.common.fmt;
 
-import java.util.Enumeration;
+import java.util.List;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.PageContext;
@@ -41,11 +42,24 @@ import org.apache.taglibs.standard.tag.common.core.Util;
 public abstract class BundleSupport extends BodyTagSupport {
 
 
+    //*********************************************************************
+    // Public constants
+
+    /**
+     * Name of the context initialization parameter giving the number of
+     * resolved localization contexts to cache for quick access. The default
+     * is 1000; a negative value disables the cache.
+     */
+    public static final String CACHE_SIZE_PARAM = "org.apache.taglibs.standard.fmt.bundleCacheSize";
+
+
     //*********************************************************************
     // Private constants
 
     private static final Locale EMPTY_LOCALE = new Locale("", "");
 
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
 
     //*********************************************************************
     // Protected state
@@ -140,6 +154,9 @@ public abstract class BundleSupport extends BodyTagSupport {
      * exists between the fallback locale (given by the
      * <tt>jakarta.servlet.jsp.jstl.fmt.fallbackLocale</tt> configuration
      * setting) and the available locales, for the given base name.
+     * <p>The outcome of these steps is cached for the application, so that
+     * later requests with the same preferred and fallback locales only look
+     * up the result; see {@link #CACHE_SIZE_PARAM}.
      *
      * @param pc       Page in which the resource bundle with the
      *                 given base name is requested
@@ -150,61 +167,67 @@ public abstract class BundleSupport extends BodyTagSupport {
      */
     public static LocalizationContext getLocalizationContext(PageContext pc,
                                                              String basename) {
-        LocalizationContext locCtxt = null;
-        ResourceBundle bundle = null;
-
         if ((basename == null) || basename.equals("")) {
             return new LocalizationContext();
         }
 
-        // Try preferred locales
+        // The preferred locales are application-based if a locale is
+        // configured, otherwise they are browser-based
         Locale pref = SetLocaleSupport.getLocale(pc, Config.FMT_LOCALE);
-        if (pref != null) {
-            // Preferred locale is application-based
-            bundle = findMatch(basename, pref);
-            if (bundle != null) {
-                locCtxt = new LocalizationContext(bundle, pref);
-            }
-        } else {
-            // Preferred locales are browser-based
-            locCtxt = findMatch(pc, basename);
+        List<Locale> prefs = null;
+        if (pref == null) {
+            prefs = Util.getRequestLocaleList((HttpServletRequest) pc.getRequest());
         }
+        Locale fallback = SetLocaleSupport.getLocale(pc, Config.FMT_FALLBACK_LOCALE);
+        ClassLoader cl = getClassLoaderCheckingPrivilege();
 
-        if (locCtxt == null) {
-            // No match found with preferred locales, try using fallback locale
-            pref = SetLocaleSupport.getLocale(pc, Config.FMT_FALLBACK_LOCALE);
-            if (pref != null) {
-                bundle = findMatch(basename, pref);
-                if (bundle != null) {
-                    locCtxt = new LocalizationContext(bundle, pref);
-                }
+        LocalizationContextCache cache = getCache(pc.getServletContext());
+        LocalizationContext locCtxt;
+        if (cache == null) {
+            locCtxt = resolve(basename, pref, prefs, fallback, cl);
+        } else {
+            locCtxt = cache.get(cl, basename, pref, prefs, fallback);
+            if (locCtxt == null) {
+                long generation = cache.getGeneration(basename);
+                long start = System.nanoTime();
+                locCtxt = resolve(basename, pref, prefs, fallback, cl);
+                cache.put(cl, basename, pref, prefs, fallback, locCtxt, generation, System.nanoTime() - start);
             }
         }
 
-        if (locCtxt == null) {
-            // try using the root resource bundle with the given basename
-            try {
-                ClassLoader cl = getClassLoaderCheckingPrivilege();
-                bundle = ResourceBundle.getBundle(basename, EMPTY_LOCALE, cl);
-                if (bundle != null) {
-                    locCtxt = new LocalizationContext(bundle, null);
-                }
-            } catch (MissingResourceException mre) {
-                // do nothing
-            }
+        // set response locale
+        if (locCtxt.getLocale() != null) {
+            SetLocaleSupport.setResponseLocale(pc, locCtxt.getLocale());
         }
 
-        if (locCtxt != null) {
-            // set response locale
-            if (locCtxt.getLocale() != null) {
-                SetLocaleSupport.setResponseLocale(pc, locCtxt.getLocale());
+        return locCtxt;
+    }
+
+    /**
+     * Returns the cache of resolved localization contexts for an application,
+     * for instance to invalidate the bundles of a base name after they have
+     * been changed.
+     *
+     * @param servletContext the application
+     * @return the cache, or null if caching is disabled
+     */
+    public static LocalizationContextCache getCache(ServletContext servletContext) {
+        if (servletContext == null) {
+            return null;
+        }
+        Object cache = servletContext.getAttribute(CACHE_SIZE_PARAM);
+        if (cache == null) {
+            synchronized (BundleSupport.class) {
+                cache = servletContext.getAttribute(CACHE_SIZE_PARAM);
+                if (cache == null) {
+                    int size = getCacheSize(servletContext);
+                    // a disabled cache is remembered so the parameter is only read once
+                    cache = size < 0 ? Boolean.FALSE : new LocalizationContextCache(size);
+                    servletContext.setAttribute(CACHE_SIZE_PARAM, cache);
+                }
             }
-        } else {
-            // create empty localization context
-            locCtxt = new LocalizationContext();
         }
-
-        return locCtxt;
+        return cache instanceof LocalizationContextCache ? (LocalizationContextCache) cache : null;
     }
 
 
@@ -212,34 +235,69 @@ public abstract class BundleSupport extends BodyTagSupport {
     // Private utility methods
 
     /*
-    * Determines the client's preferred locales from the request, and compares
-    * each of the locales (in order of preference) against the available
-    * locales in order to determine the best matching locale.
-    *
-    * @param pageContext the page in which the resource bundle with the
-    * given base name is requested
-    * @param basename the resource bundle's base name
-    *
-    * @return the localization context containing the resource bundle with
-    * the given base name and best matching locale, or <tt>null</tt> if no
-    * resource bundle match was found
-    */
-
-    private static LocalizationContext findMatch(PageContext pageContext,
-                                                 String basename) {
-
-        // Determine locale from client's browser settings.
-
-        for (Enumeration enum_ = Util.getRequestLocales((HttpServletRequest) pageContext.getRequest());
-             enum_.hasMoreElements();) {
-            Locale pref = (Locale) enum_.nextElement();
-            ResourceBundle match = findMatch(basename, pref);
-            if (match != null) {
-                return new LocalizationContext(match, pref);
+     * Resolves the localization context for the given base name, first
+     * against the preferred locales in order of preference, then against
+     * the fallback locale and finally against the root resource bundle.
+     *
+     * @return the localization context containing the resource bundle with
+     * the given base name and the locale that led to the match, or the
+     * empty localization context if no resource bundle match was found
+     */
+
+    private static LocalizationContext resolve(String basename, Locale pref, List<Locale> prefs,
+                                               Locale fallback, ClassLoader cl) {
+        ResourceBundle bundle;
+
+        // Try preferred locales
+        if (pref != null) {
+            bundle = findMatch(basename, pref, cl);
+            if (bundle != null) {
+                return new LocalizationContext(bundle, pref);
+            }
+        } else {
+            for (Locale locale : prefs) {
+                bundle = findMatch(basename, locale, cl);
+                if (bundle != null) {
+                    return new LocalizationContext(bundle, locale);
+                }
             }
         }
 
-        return null;
+        // No match found with preferred locales, try using fallback locale
+        if (fallback != null) {
+            bundle = findMatch(basename, fallback, cl);
+            if (bundle != null) {
+                return new LocalizationContext(bundle, fallback);
+            }
+        }
+
+        // try using the root resource bundle with the given basename
+        try {
+            bundle = ResourceBundle.getBundle(basename, EMPTY_LOCALE, cl, CompactBundleControl.getInstance());
+            if (bundle != null) {
+                return new LocalizationContext(bundle, null);
+            }
+        } catch (MissingResourceException mre) {
+            // do nothing
+        }
+
+        // create empty localization context
+        return new LocalizationContext();
+    }
+
+    private static int getCacheSize(ServletContext servletContext) {
+        String value = servletContext.getInitParameter(CACHE_SIZE_PARAM);
+        if (value != null) {
+            try {
+                int size = Integer.parseInt(value.trim());
+                if (size != 0) {
+                    return size;
+                }
+            } catch (NumberFormatException ex) {
+                // use the default
+            }
+        }
+        return DEFAULT_CACHE_SIZE;
     }
 
     /*
@@ -247,10 +305,12 @@ public abstract class BundleSupport extends BodyTagSupport {
      * 
      * This method calls java.util.ResourceBundle.getBundle(), but ignores
      * its return value unless its locale represents an exact or language match
-     * with the given preferred locale.
+     * with the given preferred locale. Bundles precompiled to the compact
+     * format are used in preference to classes and properties files.
      *
      * @param basename the resource bundle base name
      * @param pref the preferred locale
+     * @param cl the class loader to load the bundle from
      *
      * @return the requested resource bundle, or <tt>null</tt> if no resource
      * bundle with the given base name exists or if there is no exact- or
@@ -258,12 +318,11 @@ public abstract class BundleSupport extends BodyTagSupport {
      * the bundle returned by java.util.ResourceBundle.getBundle().
      */
 
-    private static ResourceBundle findMatch(String basename, Locale pref) {
+    private static ResourceBundle findMatch(String basename, Locale pref, ClassLoader cl) {
         ResourceBundle match = null;
 
         try {
-            ClassLoader cl = getClassLoaderCheckingPrivilege();
-            ResourceBundle bundle = ResourceBundle.getBundle(basename, pref, cl);
+            ResourceBundle bundle = ResourceBundle.getBundle(basename, pref, cl, CompactBundleControl.getInstance());
             Locale avail = bundle.getLocale();
             if (pref.equals(avail)) {
                 // Exact match
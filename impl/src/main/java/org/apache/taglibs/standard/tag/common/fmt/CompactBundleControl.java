@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * <p>Loads resource bundles from {@link CompactResourceBundle} tables, in
+ * preference to bundle classes and <code>.properties</code> files.</p>
+ *
+ * <p>For each candidate locale a <code>.jbundle</code> resource is looked
+ * for first; if there is none, the class and <code>.properties</code>
+ * formats are tried as usual. Tables found in the file system are mapped
+ * into memory rather than read onto the heap.</p>
+ */
+public class CompactBundleControl extends ResourceBundle.Control {
+
+    /**
+     * The format name of compact bundles.
+     */
+    public static final String FORMAT = "jstl.compact";
+
+    private static final List<String> FORMATS = Collections.unmodifiableList(
+            Arrays.asList(FORMAT, "java.class", "java.properties"));
+
+    private static final CompactBundleControl INSTANCE = new CompactBundleControl();
+
+    /**
+     * Returns the shared control.
+     *
+     * @return the control
+     */
+    public static CompactBundleControl getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public List<String> getFormats(String baseName) {
+        if (baseName == null) {
+            throw new NullPointerException();
+        }
+        return FORMATS;
+    }
+
+    @Override
+    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader,
+                                    boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        if (!FORMAT.equals(format)) {
+            return super.newBundle(baseName, locale, format, loader, reload);
+        }
+        String name = toResourceName(toBundleName(baseName, locale), CompactResourceBundle.EXTENSION);
+        URL url = loader.getResource(name);
+        if (url == null) {
+            return null;
+        }
+        return new CompactResourceBundle(load(url, reload));
+    }
+
+    private static ByteBuffer load(URL url, boolean reload) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                RandomAccessFile file = new RandomAccessFile(new File(url.toURI()), "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    // the mapping stays valid after the channel is closed
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } finally {
+                    file.close();
+                }
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // not a plain file; read it below
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        if (reload) {
+            connection.setUseCaches(false);
+        }
+        InputStream in = connection.getInputStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(connection.getContentLength(), 1024));
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+}
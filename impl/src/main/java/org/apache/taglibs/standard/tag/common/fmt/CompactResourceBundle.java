@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+/**
+ * <p>A resource bundle read from a precompiled string table rather than
+ * from a <code>.properties</code> file.</p>
+ *
+ * <p>A <code>.properties</code> bundle keeps a hash map with a key and value
+ * string for every entry. This bundle instead keeps the table as it was
+ * read, or as it is mapped from the file system, and finds keys through a
+ * table of their hash codes, of one int per slot. A value becomes a String the first time it is looked up. Strings
+ * that occur more than once are stored once.</p>
+ *
+ * <p>Tables are written from <code>.properties</code> files with
+ * {@link #write(Properties, OutputStream)}, or at build time by running
+ * this class with the names of the files to convert; each
+ * <code>name.properties</code> is converted to <code>name.jbundle</code>
+ * next to it. They are found by {@link CompactBundleControl}.</p>
+ *
+ * <p>The table is laid out as big-endian integers followed by UTF-16
+ * characters:</p>
+ * <pre>
+ *   magic, version, entry count (n), string count (m)
+ *   n key string indexes, in key order
+ *   n value string indexes
+ *   m + 1 character offsets, one per string and one for the end
+ *   the characters of the strings
+ * </pre>
+ */
+public final class CompactResourceBundle extends ResourceBundle {
+
+    /**
+     * The file extension of a compact bundle.
+     */
+    public static final String EXTENSION = "jbundle";
+
+    private static final int MAGIC = 0x4A53544C; // "JSTL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4;
+
+    private final int size;
+    private final IntBuffer keys;
+    private final IntBuffer values;
+    private final IntBuffer offsets;
+    private final CharBuffer chars;
+
+    // entry index + 1 for each key, by hash code; 0 for a free slot
+    private final int[] hashes;
+
+    // keys already looked up, as given by the caller
+    private final String[] names;
+
+    // values already looked up
+    private final String[] strings;
+
+    /**
+     * Creates a bundle over a table.
+     *
+     * @param table the table; its content must not change afterwards
+     * @throws IOException if the table is not a compact bundle
+     */
+    public CompactResourceBundle(ByteBuffer table) throws IOException {
+        IntBuffer ints = table.duplicate().asIntBuffer();
+        if (ints.remaining() < HEADER_SIZE || ints.get(0) != MAGIC || ints.get(1) != VERSION) {
+            throw new IOException("Not a compact resource bundle");
+        }
+        size = ints.get(2);
+        int stringCount = ints.get(3);
+        int tables = HEADER_SIZE + 2 * size + stringCount + 1;
+        if (size < 0 || stringCount < 0 || ints.remaining() < tables) {
+            throw new IOException("Truncated compact resource bundle");
+        }
+        keys = slice(ints, HEADER_SIZE, size);
+        values = slice(ints, HEADER_SIZE + size, size);
+        offsets = slice(ints, HEADER_SIZE + 2 * size, stringCount + 1);
+        ByteBuffer data = table.duplicate();
+        // through Buffer, so that the class also runs on Java 8, which lacks
+        // the covariant overrides of position(int) and limit(int)
+        ((Buffer) data).position(data.position() + 4 * tables);
+        chars = data.slice().asCharBuffer();
+        if (chars.remaining() < offsets.get(stringCount)) {
+            throw new IOException("Truncated compact resource bundle");
+        }
+        hashes = new int[tableSize(size)];
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys.get(i)) & (hashes.length - 1);
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & (hashes.length - 1);
+            }
+            hashes[slot] = i + 1;
+        }
+        names = new String[size];
+        strings = new String[size];
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        String value = strings[i];
+        if (value == null) {
+            value = string(values.get(i));
+            strings[i] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        List<String> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(string(keys.get(i)));
+        }
+        if (parent != null) {
+            for (Enumeration<String> e = parent.getKeys(); e.hasMoreElements(); ) {
+                String key = e.nextElement();
+                if (indexOf(key) < 0) {
+                    all.add(key);
+                }
+            }
+        }
+        return Collections.enumeration(all);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return indexOf(key) >= 0 || (parent != null && parent.containsKey(key));
+    }
+
+    /**
+     * Writes the entries of a <code>.properties</code> file as a compact bundle.
+     *
+     * @param properties the entries
+     * @param out        the stream to write to; it is not closed
+     * @throws IOException if the table can not be written
+     */
+    public static void write(Properties properties, OutputStream out) throws IOException {
+        String[] sorted = properties.stringPropertyNames().toArray(new String[0]);
+        Arrays.sort(sorted);
+
+        Map<String, Integer> index = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int[] keyIndexes = new int[sorted.length];
+        int[] valueIndexes = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keyIndexes[i] = intern(sorted[i], index, table);
+            valueIndexes[i] = intern(properties.getProperty(sorted[i]), index, table);
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(sorted.length);
+        data.writeInt(table.size());
+        for (int i : keyIndexes) {
+            data.writeInt(i);
+        }
+        for (int i : valueIndexes) {
+            data.writeInt(i);
+        }
+        int offset = 0;
+        for (String s : table) {
+            data.writeInt(offset);
+            offset += s.length();
+        }
+        data.writeInt(offset);
+        for (String s : table) {
+            data.writeChars(s);
+        }
+        data.flush();
+    }
+
+    /**
+     * Converts <code>.properties</code> files to compact bundles, for use at
+     * build time.
+     *
+     * @param args the names of the files to convert
+     * @throws IOException if a file can not be converted
+     */
+    public static void main(String[] args) throws IOException {
+        for (String name : args) {
+            if (!name.endsWith(".properties")) {
+                throw new IllegalArgumentException("Not a .properties file: " + name);
+            }
+            Properties properties = new Properties();
+            InputStream in = new FileInputStream(name);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+            String target = name.substring(0, name.length() - "properties".length()) + EXTENSION;
+            OutputStream out = new FileOutputStream(target);
+            try {
+                write(properties, out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private int indexOf(String key) {
+        int slot = key.hashCode() & (hashes.length - 1);
+        int i;
+        while ((i = hashes[slot]) != 0) {
+            String name = names[i - 1];
+            if (name != null) {
+                if (name.equals(key)) {
+                    return i - 1;
+                }
+            } else if (matches(keys.get(i - 1), key)) {
+                names[i - 1] = key;
+                return i - 1;
+            }
+            slot = (slot + 1) & (hashes.length - 1);
+        }
+        return -1;
+    }
+
+    // whether a string in the table equals a key
+    private boolean matches(int string, String key) {
+        int start = offsets.get(string);
+        int length = offsets.get(string + 1) - start;
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars.get(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the hash code of a string in the table, as String.hashCode computes it
+    private int hash(int string) {
+        int start = offsets.get(string);
+        int end = offsets.get(string + 1);
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars.get(i);
+        }
+        return h;
+    }
+
+    // a power of two of at least twice the number of entries
+    private static int tableSize(int size) {
+        int n = 2;
+        while (n < 2 * size) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    private String string(int string) {
+        int start = offsets.get(string);
+        char[] c = new char[offsets.get(string + 1) - start];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = chars.get(start + i);
+        }
+        return new String(c);
+    }
+
+    private static IntBuffer slice(IntBuffer ints, int position, int length) {
+        IntBuffer slice = ints.duplicate();
+        ((Buffer) slice).position(position);
+        ((Buffer) slice).limit(position + length);
+        return slice.slice();
+    }
+
+    private static int intern(String s, Map<String, Integer> index, List<String> table) {
+        Integer i = index.get(s);
+        if (i == null) {
+            i = table.size();
+            index.put(s, i);
+            table.add(s);
+        }
+        return i;
+    }
+}
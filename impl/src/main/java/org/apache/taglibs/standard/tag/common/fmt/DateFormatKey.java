@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * The attribute values that determine a date formatter or parser, used to
+ * key the caches of &lt;formatDate&gt; and &lt;parseDate&gt;.
+ */
+final class DateFormatKey {
+    private final Locale locale;
+    private final String type;
+    private final String dateStyle;
+    private final String timeStyle;
+    private final String pattern;
+    private final ZoneId zone;
+    private final int hash;
+
+    DateFormatKey(Locale locale, String type, String dateStyle, String timeStyle, String pattern, ZoneId zone) {
+        this.locale = locale;
+        this.type = type;
+        this.dateStyle = dateStyle;
+        this.timeStyle = timeStyle;
+        this.pattern = pattern;
+        this.zone = zone;
+        int h = locale.hashCode();
+        h = 31 * h + hashCode(type);
+        h = 31 * h + hashCode(dateStyle);
+        h = 31 * h + hashCode(timeStyle);
+        h = 31 * h + hashCode(pattern);
+        h = 31 * h + (zone == null ? 0 : zone.hashCode());
+        this.hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DateFormatKey)) {
+            return false;
+        }
+        DateFormatKey other = (DateFormatKey) o;
+        return hash == other.hash
+                && locale.equals(other.locale)
+                && equals(type, other.type)
+                && equals(dateStyle, other.dateStyle)
+                && equals(timeStyle, other.timeStyle)
+                && equals(pattern, other.pattern)
+                && (zone == null ? other.zone == null : zone.equals(other.zone));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static int hashCode(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
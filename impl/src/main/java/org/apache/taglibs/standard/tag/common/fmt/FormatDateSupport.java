@@ -20,6 +20,18 @@ package org.apache.taglibs.standard.tag.common.fmt;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalField;
+import java.time.temporal.WeekFields;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -31,6 +43,7 @@ import jakarta.servlet.jsp.tagext.TagSupport;
 
 import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.tag.common.core.Util;
+import org.apache.taglibs.standard.util.ConcurrentCache;
 
 /**
  * Support for tag handlers for &lt;formatDate&gt;, the date and time
@@ -48,10 +61,21 @@ public abstract class FormatDateSupport extends TagSupport {
     private static final String TIME = "time";
     private static final String DATETIME = "both";
 
+    private static final int CACHE_SIZE = 1000;
+
+    // configured formatters for java.util.Date values, cloned for each use
+    // as DateFormat is not thread-safe
+    private static final ConcurrentCache<DateFormatKey, DateFormat> FORMATS = new ConcurrentCache<>(CACHE_SIZE);
+
+    // formatters for java.time values, which are immutable and shared
+    private static final ConcurrentCache<DateFormatKey, DateTimeFormatter> TEMPORAL_FORMATS =
+            new ConcurrentCache<>(CACHE_SIZE);
+
     //*********************************************************************
     // Protected state
 
     protected Date value;                        // 'value' attribute
+    protected TemporalAccessor temporalValue;    // 'value' attribute given as a java.time value
     protected String type;                       // 'type' attribute
     protected String pattern;                    // 'pattern' attribute
     protected Object timeZone;                   // 'timeZone' attribute
@@ -78,6 +102,7 @@ public abstract class FormatDateSupport extends TagSupport {
         type = dateStyle = timeStyle = null;
         pattern = var = null;
         value = null;
+        temporalValue = null;
         timeZone = null;
         scope = PageContext.PAGE_SCOPE;
     }
@@ -107,7 +132,7 @@ public abstract class FormatDateSupport extends TagSupport {
 
         String formatted = null;
 
-        if (value == null) {
+        if (value == null && temporalValue == null) {
             if (var != null) {
                 pageContext.removeAttribute(var, scope);
             }
@@ -119,36 +144,20 @@ public abstract class FormatDateSupport extends TagSupport {
                 pageContext,
                 this,
                 true,
-                DateFormat.getAvailableLocales());
-
-        if (locale != null) {
-            DateFormat formatter = createFormatter(locale, pattern);
-
-            // Set time zone
-            TimeZone tz = null;
-            if ((timeZone instanceof String)
-                    && timeZone.equals("")) {
-                timeZone = null;
-            }
-            if (timeZone != null) {
-                if (timeZone instanceof String) {
-                    tz = TimeZone.getTimeZone((String) timeZone);
-                } else if (timeZone instanceof TimeZone) {
-                    tz = (TimeZone) timeZone;
-                } else {
-                    throw new JspTagException(
-                            Resources.getMessage("FORMAT_DATE_BAD_TIMEZONE"));
-                }
-            } else {
-                tz = TimeZoneSupport.getTimeZone(pageContext, this);
-            }
+                SetLocaleSupport.DATE_LOCALES);
+
+        if (locale == null) {
+            // no formatting locale available, use the value's toString()
+            formatted = value != null ? value.toString() : temporalValue.toString();
+        } else if (value != null) {
+            DateFormat formatter = getFormatter(locale);
+            TimeZone tz = resolveTimeZone();
             if (tz != null) {
                 formatter.setTimeZone(tz);
             }
             formatted = formatter.format(value);
         } else {
-            // no formatting locale available, use Date.toString()
-            formatted = value.toString();
+            formatted = format(temporalValue, locale, resolveTimeZone());
         }
 
         if (var != null) {
@@ -172,9 +181,274 @@ public abstract class FormatDateSupport extends TagSupport {
     }
 
 
+    //*********************************************************************
+    // Package utility methods
+
+    /*
+     * Returns a formatter for java.util.Date values in the given locale,
+     * configured by this tag's attributes. A copy of a cached formatter is
+     * returned for the calling thread's exclusive use.
+     */
+
+    DateFormat getFormatter(Locale loc) throws JspException {
+        DateFormatKey key = new DateFormatKey(loc, type, dateStyle, timeStyle, pattern, null);
+        DateFormat prototype = FORMATS.get(key);
+        if (prototype == null) {
+            prototype = createFormatter(loc, pattern);
+            FORMATS.put(key, prototype);
+        }
+        return (DateFormat) prototype.clone();
+    }
+
+    /*
+     * Formats a java.time value in the given locale and time zone.
+     * Patterns follow java.text.SimpleDateFormat, as they do for
+     * java.util.Date values, and styles map to the FormatStyle of the same
+     * name. A value with a time zone or offset is
+     * converted to the given time zone; a java.time.Instant with no time zone
+     * given is shown in the default time zone, as a java.util.Date would be.
+     */
+
+    String format(TemporalAccessor temporal, Locale loc, TimeZone tz) throws JspException {
+        ZoneId zone = null;
+        if (tz != null) {
+            zone = TimeZoneSupport.toZoneId(tz);
+        } else if (temporal instanceof Instant) {
+            zone = ZoneId.systemDefault();
+        }
+        DateFormatKey key = new DateFormatKey(loc, type, dateStyle, timeStyle, pattern, zone);
+        DateTimeFormatter formatter = TEMPORAL_FORMATS.get(key);
+        if (formatter == null) {
+            formatter = createTemporalFormatter(loc, zone);
+            TEMPORAL_FORMATS.put(key, formatter);
+        }
+        try {
+            return formatter.format(temporal);
+        } catch (DateTimeException e) {
+            throw new JspException(
+                    Resources.getMessage("FORMAT_DATE_UNSUPPORTED_VALUE", String.valueOf(temporal)), e);
+        }
+    }
+
+
     //*********************************************************************
     // Private utility methods
 
+    private TimeZone resolveTimeZone() throws JspException {
+        if ((timeZone instanceof String)
+                && timeZone.equals("")) {
+            timeZone = null;
+        }
+        if (timeZone == null) {
+            return TimeZoneSupport.getTimeZone(pageContext, this);
+        }
+        if (timeZone instanceof String) {
+            return TimeZoneSupport.getTimeZone((String) timeZone);
+        } else if (timeZone instanceof TimeZone) {
+            return (TimeZone) timeZone;
+        } else {
+            throw new JspTagException(
+                    Resources.getMessage("FORMAT_DATE_BAD_TIMEZONE"));
+        }
+    }
+
+    private DateTimeFormatter createTemporalFormatter(Locale loc, ZoneId zone) throws JspException {
+        DateTimeFormatter formatter;
+        if (pattern != null) {
+            formatter = ofSimplePattern(pattern, loc);
+        } else if ((type == null) || DATE.equalsIgnoreCase(type)) {
+            formatter = DateTimeFormatter.ofLocalizedDate(
+                    getFormatStyle(dateStyle, "FORMAT_DATE_INVALID_DATE_STYLE")).withLocale(loc);
+        } else if (TIME.equalsIgnoreCase(type)) {
+            formatter = DateTimeFormatter.ofLocalizedTime(
+                    getFormatStyle(timeStyle, "FORMAT_DATE_INVALID_TIME_STYLE")).withLocale(loc);
+        } else if (DATETIME.equalsIgnoreCase(type)) {
+            formatter = DateTimeFormatter.ofLocalizedDateTime(
+                    getFormatStyle(dateStyle, "FORMAT_DATE_INVALID_DATE_STYLE"),
+                    getFormatStyle(timeStyle, "FORMAT_DATE_INVALID_TIME_STYLE")).withLocale(loc);
+        } else {
+            throw new JspException(Resources.getMessage("FORMAT_DATE_INVALID_TYPE", type));
+        }
+        if (zone != null) {
+            formatter = formatter.withZone(zone);
+        }
+        return formatter;
+    }
+
+    /*
+     * Builds a formatter for java.time values from a java.text.SimpleDateFormat
+     * pattern, so that a pattern means the same for every kind of value.
+     * The two pattern syntaxes share most letters, but not all of them
+     * mean the same: 'u' and 'S' differ, for instance. Each letter is
+     * therefore mapped to the field SimpleDateFormat prints for it.
+     * Letters SimpleDateFormat does not know are rejected as it rejects
+     * them.
+     */
+
+    static DateTimeFormatter ofSimplePattern(String pattern, Locale loc) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+        WeekFields weeks = WeekFields.of(loc);
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                // quoted text, where '' stands for a single quote
+                int end = i + 1;
+                if (end < length && pattern.charAt(end) == '\'') {
+                    builder.appendLiteral('\'');
+                    i = end + 1;
+                    continue;
+                }
+                StringBuilder text = new StringBuilder();
+                while (true) {
+                    if (end == length) {
+                        throw new IllegalArgumentException("Unterminated quote in pattern " + pattern);
+                    }
+                    char q = pattern.charAt(end++);
+                    if (q == '\'') {
+                        if (end < length && pattern.charAt(end) == '\'') {
+                            text.append('\'');
+                            end++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        text.append(q);
+                    }
+                }
+                builder.appendLiteral(text.toString());
+                i = end;
+                continue;
+            }
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                builder.appendLiteral(c);
+                i++;
+                continue;
+            }
+            int count = 1;
+            while (i + count < length && pattern.charAt(i + count) == c) {
+                count++;
+            }
+            i += count;
+            switch (c) {
+                case 'G':
+                    builder.appendText(ChronoField.ERA, count >= 4 ? TextStyle.FULL : TextStyle.SHORT);
+                    break;
+                case 'y':
+                    appendYear(builder, ChronoField.YEAR_OF_ERA, count);
+                    break;
+                case 'Y':
+                    appendYear(builder, weeks.weekBasedYear(), count);
+                    break;
+                case 'M':
+                    appendMonth(builder, count, TextStyle.FULL, TextStyle.SHORT);
+                    break;
+                case 'L':
+                    appendMonth(builder, count, TextStyle.FULL_STANDALONE, TextStyle.SHORT_STANDALONE);
+                    break;
+                case 'w':
+                    appendNumber(builder, weeks.weekOfWeekBasedYear(), count);
+                    break;
+                case 'W':
+                    appendNumber(builder, weeks.weekOfMonth(), count);
+                    break;
+                case 'D':
+                    appendNumber(builder, ChronoField.DAY_OF_YEAR, count);
+                    break;
+                case 'd':
+                    appendNumber(builder, ChronoField.DAY_OF_MONTH, count);
+                    break;
+                case 'F':
+                    appendNumber(builder, ChronoField.ALIGNED_WEEK_OF_MONTH, count);
+                    break;
+                case 'E':
+                    builder.appendText(ChronoField.DAY_OF_WEEK, count >= 4 ? TextStyle.FULL : TextStyle.SHORT);
+                    break;
+                case 'u':
+                    appendNumber(builder, ChronoField.DAY_OF_WEEK, count);
+                    break;
+                case 'a':
+                    builder.appendText(ChronoField.AMPM_OF_DAY, TextStyle.SHORT);
+                    break;
+                case 'H':
+                    appendNumber(builder, ChronoField.HOUR_OF_DAY, count);
+                    break;
+                case 'k':
+                    appendNumber(builder, ChronoField.CLOCK_HOUR_OF_DAY, count);
+                    break;
+                case 'K':
+                    appendNumber(builder, ChronoField.HOUR_OF_AMPM, count);
+                    break;
+                case 'h':
+                    appendNumber(builder, ChronoField.CLOCK_HOUR_OF_AMPM, count);
+                    break;
+                case 'm':
+                    appendNumber(builder, ChronoField.MINUTE_OF_HOUR, count);
+                    break;
+                case 's':
+                    appendNumber(builder, ChronoField.SECOND_OF_MINUTE, count);
+                    break;
+                case 'S':
+                    appendNumber(builder, ChronoField.MILLI_OF_SECOND, count);
+                    break;
+                case 'z':
+                    builder.appendZoneText(count >= 4 ? TextStyle.FULL : TextStyle.SHORT);
+                    break;
+                case 'Z':
+                    builder.appendOffset("+HHMM", "+0000");
+                    break;
+                case 'X':
+                    if (count > 3) {
+                        throw new IllegalArgumentException("Invalid ISO 8601 format: length=" + count);
+                    }
+                    builder.appendOffset(count == 1 ? "+HH" : count == 2 ? "+HHMM" : "+HH:MM", "Z");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Illegal pattern character '" + c + "'");
+            }
+        }
+        return builder.toFormatter(loc);
+    }
+
+    // a year: two digits for "yy", otherwise at least as many digits as letters
+    private static void appendYear(DateTimeFormatterBuilder builder, TemporalField field, int count) {
+        if (count == 2) {
+            builder.appendValueReduced(field, 2, 2, 2000);
+        } else {
+            appendNumber(builder, field, count);
+        }
+    }
+
+    // a month: text for three letters or more, otherwise a number
+    private static void appendMonth(DateTimeFormatterBuilder builder, int count, TextStyle full, TextStyle abbreviated) {
+        if (count >= 4) {
+            builder.appendText(ChronoField.MONTH_OF_YEAR, full);
+        } else if (count == 3) {
+            builder.appendText(ChronoField.MONTH_OF_YEAR, abbreviated);
+        } else {
+            appendNumber(builder, ChronoField.MONTH_OF_YEAR, count);
+        }
+    }
+
+    // a number padded with zeros to as many digits as letters
+    private static void appendNumber(DateTimeFormatterBuilder builder, TemporalField field, int count) {
+        if (count == 1) {
+            builder.appendValue(field);
+        } else {
+            builder.appendValue(field, Math.min(count, 19), 19, SignStyle.NOT_NEGATIVE);
+        }
+    }
+
+    /*
+     * The DateFormat style constants FULL, LONG, MEDIUM and SHORT are the
+     * ordinals of the FormatStyle with the same name.
+     */
+
+    private static FormatStyle getFormatStyle(String style, String errCode) throws JspException {
+        return FormatStyle.values()[Util.getStyle(style, errCode)];
+    }
+
     private DateFormat createFormatter(Locale loc, String pattern) throws JspException {
         // Apply pattern, if present
         if (pattern != null) {
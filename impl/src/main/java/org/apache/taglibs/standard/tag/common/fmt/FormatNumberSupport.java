@@ -18,7 +18,6 @@
 package org.apache.taglibs.standard.tag.common.fmt;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
@@ -32,6 +31,7 @@ import jakarta.servlet.jsp.tagext.BodyTagSupport;
 
 import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.tag.common.core.Util;
+import org.apache.taglibs.standard.util.ConcurrentCache;
 
 /**
  * Support for tag handlers for &lt;formatNumber&gt;, the number
@@ -45,12 +45,15 @@ public abstract class FormatNumberSupport extends BodyTagSupport {
     //*********************************************************************
     // Private constants
 
-    private static final Class[] GET_INSTANCE_PARAM_TYPES =
-            new Class[]{String.class};
     private static final String NUMBER = "number";
     private static final String CURRENCY = "currency";
     private static final String PERCENT = "percent";
 
+    private static final int CACHE_SIZE = 1000;
+
+    // configured formatters, cloned for each use as NumberFormat is not thread-safe
+    private static final ConcurrentCache<FormatKey, NumberFormat> FORMATS = new ConcurrentCache<>(CACHE_SIZE);
+
 
     //*********************************************************************
     // Protected state
@@ -78,20 +81,11 @@ public abstract class FormatNumberSupport extends BodyTagSupport {
 
     private String var;                        // 'var' attribute
     private int scope;                         // 'scope' attribute
-    private static Class currencyClass;
 
 
     //*********************************************************************
     // Constructor and initialization
 
-    static {
-        try {
-            currencyClass = Class.forName("java.util.Currency");
-            // container's runtime is J2SE 1.4 or greater
-        } catch (Exception cnfe) {
-        }
-    }
-
     public FormatNumberSupport() {
         super();
         init();
@@ -172,29 +166,10 @@ public abstract class FormatNumberSupport extends BodyTagSupport {
                 pageContext,
                 this,
                 true,
-                NumberFormat.getAvailableLocales());
+                SetLocaleSupport.NUMBER_LOCALES);
 
         if (loc != null) {
-            // Create formatter
-            NumberFormat formatter = null;
-            if ((pattern != null) && !pattern.equals("")) {
-                // if 'pattern' is specified, 'type' is ignored
-                DecimalFormatSymbols symbols = new DecimalFormatSymbols(loc);
-                formatter = new DecimalFormat(pattern, symbols);
-            } else {
-                formatter = createFormatter(loc);
-            }
-            if (((pattern != null) && !pattern.equals(""))
-                    || CURRENCY.equalsIgnoreCase(type)) {
-                try {
-                    setCurrency(formatter);
-                } catch (Exception e) {
-                    throw new JspException(
-                            Resources.getMessage("FORMAT_NUMBER_CURRENCY_ERROR"),
-                            e);
-                }
-            }
-            configureFormatter(formatter);
+            NumberFormat formatter = getFormatter(loc);
             formatted = formatter.format(input);
         } else {
             // no formatting locale available, use toString()
@@ -222,9 +197,53 @@ public abstract class FormatNumberSupport extends BodyTagSupport {
     }
 
 
+    //*********************************************************************
+    // Package utility methods
+
+    /*
+     * Returns a formatter for the given locale configured by this tag's
+     * attributes. Formatters are cached by locale and attribute values, and
+     * a copy of the cached formatter is returned for the calling thread's
+     * exclusive use.
+     */
+
+    NumberFormat getFormatter(Locale loc) throws JspException {
+        FormatKey key = new FormatKey(this, loc);
+        NumberFormat prototype = FORMATS.get(key);
+        if (prototype == null) {
+            prototype = createConfiguredFormatter(loc);
+            FORMATS.put(key, prototype);
+        }
+        return (NumberFormat) prototype.clone();
+    }
+
+
     //*********************************************************************
     // Private utility methods
 
+    private NumberFormat createConfiguredFormatter(Locale loc) throws JspException {
+        NumberFormat formatter;
+        if ((pattern != null) && !pattern.equals("")) {
+            // if 'pattern' is specified, 'type' is ignored
+            DecimalFormatSymbols symbols = new DecimalFormatSymbols(loc);
+            formatter = new DecimalFormat(pattern, symbols);
+        } else {
+            formatter = createFormatter(loc);
+        }
+        if (((pattern != null) && !pattern.equals(""))
+                || CURRENCY.equalsIgnoreCase(type)) {
+            try {
+                setCurrency(formatter);
+            } catch (Exception e) {
+                throw new JspException(
+                        Resources.getMessage("FORMAT_NUMBER_CURRENCY_ERROR"),
+                        e);
+            }
+        }
+        configureFormatter(formatter);
+        return formatter;
+    }
+
     private NumberFormat createFormatter(Locale loc) throws JspException {
         NumberFormat formatter = null;
 
@@ -272,66 +291,113 @@ public abstract class FormatNumberSupport extends BodyTagSupport {
      * currency symbol (specified via the "currencySymbol" attribute).
      *
      * If both "currencyCode" and "currencySymbol" are present,
-     * "currencyCode" takes precedence over "currencySymbol" if the
-     * java.util.Currency class is defined in the container's runtime (that
-     * is, if the container's runtime is J2SE 1.4 or greater), and
-     * "currencySymbol" takes precendence over "currencyCode" otherwise.
-     *
-     * If only "currencyCode" is given, it is used as a currency symbol if
-     * java.util.Currency is not defined.
+     * "currencyCode" takes precedence over "currencySymbol".
      *
      * Example:
      *
-     * JDK    "currencyCode" "currencySymbol" Currency symbol being displayed
-     * -----------------------------------------------------------------------
-     * all         ---            ---         Locale's default currency symbol
-     *
-     * <1.4        EUR            ---         EUR
-     * >=1.4       EUR            ---         Locale's currency symbol for Euro
-     *
-     * all         ---           \u20AC       \u20AC
-     * 
-     * <1.4        EUR           \u20AC       \u20AC
-     * >=1.4       EUR           \u20AC       Locale's currency symbol for Euro
+     * "currencyCode" "currencySymbol" Currency symbol being displayed
+     * -----------------------------------------------------------------
+     *      ---            ---         Locale's default currency symbol
+     *      EUR            ---         Locale's currency symbol for Euro
+     *      ---           \u20AC       \u20AC
+     *      EUR           \u20AC       Locale's currency symbol for Euro
      */
 
     private void setCurrency(NumberFormat formatter) throws Exception {
-        String code = null;
-        String symbol = null;
-
-        if ((currencyCode == null) && (currencySymbol == null)) {
-            return;
-        }
-
-        if ((currencyCode != null) && (currencySymbol != null)) {
-            if (currencyClass != null) {
-                code = currencyCode;
-            } else {
-                symbol = currencySymbol;
-            }
-        } else if (currencyCode == null) {
-            symbol = currencySymbol;
-        } else {
-            if (currencyClass != null) {
-                code = currencyCode;
-            } else {
-                symbol = currencyCode;
-            }
-        }
-
-        if (code != null) {
-            Currency currency = Currency.getInstance( code );
-            formatter.setCurrency( currency );
-
-        } else {
+        if (currencyCode != null) {
+            formatter.setCurrency(Currency.getInstance(currencyCode));
+        } else if (currencySymbol != null) {
             /*
             * Let potential ClassCastException propagate up (will almost
             * never happen)
             */
             DecimalFormat df = (DecimalFormat) formatter;
             DecimalFormatSymbols dfs = df.getDecimalFormatSymbols();
-            dfs.setCurrencySymbol(symbol);
+            dfs.setCurrencySymbol(currencySymbol);
             df.setDecimalFormatSymbols(dfs);
         }
     }
+
+    /*
+     * The attribute values that determine a formatter.
+     */
+
+    private static final class FormatKey {
+        private final Locale locale;
+        private final String type;
+        private final String pattern;
+        private final String currencyCode;
+        private final String currencySymbol;
+        private final int specified;
+        private final boolean groupingUsed;
+        private final int maxIntegerDigits;
+        private final int minIntegerDigits;
+        private final int maxFractionDigits;
+        private final int minFractionDigits;
+        private final int hash;
+
+        FormatKey(FormatNumberSupport tag, Locale locale) {
+            this.locale = locale;
+            this.type = tag.type;
+            this.pattern = tag.pattern;
+            this.currencyCode = tag.currencyCode;
+            this.currencySymbol = tag.currencySymbol;
+            // unspecified attributes are recorded as 0 so they compare equal
+            this.specified = (tag.groupingUsedSpecified ? 1 : 0)
+                    | (tag.maxIntegerDigitsSpecified ? 2 : 0)
+                    | (tag.minIntegerDigitsSpecified ? 4 : 0)
+                    | (tag.maxFractionDigitsSpecified ? 8 : 0)
+                    | (tag.minFractionDigitsSpecified ? 16 : 0);
+            this.groupingUsed = tag.groupingUsedSpecified && tag.isGroupingUsed;
+            this.maxIntegerDigits = tag.maxIntegerDigitsSpecified ? tag.maxIntegerDigits : 0;
+            this.minIntegerDigits = tag.minIntegerDigitsSpecified ? tag.minIntegerDigits : 0;
+            this.maxFractionDigits = tag.maxFractionDigitsSpecified ? tag.maxFractionDigits : 0;
+            this.minFractionDigits = tag.minFractionDigitsSpecified ? tag.minFractionDigits : 0;
+            int h = locale.hashCode();
+            h = 31 * h + hashCode(type);
+            h = 31 * h + hashCode(pattern);
+            h = 31 * h + hashCode(currencyCode);
+            h = 31 * h + hashCode(currencySymbol);
+            h = 31 * h + specified;
+            h = 31 * h + (groupingUsed ? 1 : 0);
+            h = 31 * h + maxIntegerDigits;
+            h = 31 * h + minIntegerDigits;
+            h = 31 * h + maxFractionDigits;
+            h = 31 * h + minFractionDigits;
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FormatKey)) {
+                return false;
+            }
+            FormatKey other = (FormatKey) o;
+            return hash == other.hash
+                    && specified == other.specified
+                    && groupingUsed == other.groupingUsed
+                    && maxIntegerDigits == other.maxIntegerDigits
+                    && minIntegerDigits == other.minIntegerDigits
+                    && maxFractionDigits == other.maxFractionDigits
+                    && minFractionDigits == other.minFractionDigits
+                    && locale.equals(other.locale)
+                    && equals(type, other.type)
+                    && equals(pattern, other.pattern)
+                    && equals(currencyCode, other.currencyCode)
+                    && equals(currencySymbol, other.currencySymbol);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static int hashCode(String s) {
+            return s == null ? 0 : s.hashCode();
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
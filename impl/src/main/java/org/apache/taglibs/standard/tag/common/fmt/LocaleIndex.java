@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.taglibs.standard.tag.common.core.Util;
+import org.apache.taglibs.standard.util.ConcurrentCache;
+
+/**
+ * A set of available formatting locales, indexed so that the best match
+ * for a preferred locale is found without scanning them all.
+ *
+ * <p>The best match is the first available locale that exactly matches the
+ * preferred locale. Failing that, if the preferred locale has a variant, it
+ * is the last available locale without a variant whose language and country
+ * match. Otherwise it is the first available locale without a country whose
+ * language matches.</p>
+ *
+ * <p>The index also remembers the match for each list of a client's
+ * preferred locales it has been asked about.</p>
+ */
+final class LocaleIndex {
+
+    private static final int CACHE_SIZE = 1000;
+
+    // cached in place of preferred locales with no match
+    private static final Object NO_MATCH = new Object();
+
+    private final Map<Locale, Locale> exact = new HashMap<>();
+    private final Map<String, Locale> languageAndCountry = new HashMap<>();
+    private final Map<String, Locale> language = new HashMap<>();
+    private final ConcurrentCache<List<Locale>, Object> matches = new ConcurrentCache<>(CACHE_SIZE);
+
+    LocaleIndex(Locale[] avail) {
+        for (Locale locale : avail) {
+            if (!exact.containsKey(locale)) {
+                exact.put(locale, locale);
+            }
+            if ("".equals(locale.getVariant())) {
+                languageAndCountry.put(languageAndCountry(locale), locale);
+            }
+            if ("".equals(locale.getCountry()) && !language.containsKey(locale.getLanguage())) {
+                language.put(locale.getLanguage(), locale);
+            }
+        }
+    }
+
+    /**
+     * Returns the available locale that best matches a preferred locale.
+     *
+     * @param pref the preferred locale
+     * @return the best match, or null if there is none
+     */
+    Locale match(Locale pref) {
+        Locale match = exact.get(pref);
+        if (match == null) {
+            if (!"".equals(pref.getVariant())) {
+                match = languageAndCountry.get(languageAndCountry(pref));
+            }
+            if (match == null) {
+                match = language.get(pref.getLanguage());
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the available locale that best matches the client's preferred
+     * locales.
+     *
+     * @param request the request
+     * @return the best match, or null if there is none
+     * @see Util#getRequestLocaleList(HttpServletRequest)
+     */
+    Locale match(HttpServletRequest request) {
+        List<Locale> prefs = Util.getRequestLocaleList(request);
+        if (prefs.isEmpty()) {
+            return null;
+        }
+
+        Object match = matches.get(prefs);
+        if (match == null) {
+            match = NO_MATCH;
+            for (Locale pref : prefs) {
+                Locale locale = match(pref);
+                if (locale != null) {
+                    match = locale;
+                    break;
+                }
+            }
+            matches.put(prefs, match);
+        }
+        return match == NO_MATCH ? null : (Locale) match;
+    }
+
+    private static String languageAndCountry(Locale locale) {
+        return locale.getLanguage() + '_' + locale.getCountry();
+    }
+}
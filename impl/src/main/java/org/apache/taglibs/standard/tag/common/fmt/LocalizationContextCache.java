@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.jsp.jstl.fmt.LocalizationContext;
+
+import org.apache.taglibs.standard.util.ConcurrentCache;
+
+/**
+ * <p>Localization contexts already resolved by
+ * {@link BundleSupport#getLocalizationContext(jakarta.servlet.jsp.PageContext, String)},
+ * so that repeated requests for the same bundle skip the search through
+ * the preferred locales.</p>
+ *
+ * <p>A resolution depends on the bundle base name, the configured locale,
+ * the client's preferred locales when no locale is configured, and the
+ * configured fallback locale. Bundles are loaded through the thread's context
+ * class loader so resolutions are also kept apart by class loader; loaders
+ * are held weakly so that a cache shared with a redeployed application does
+ * not keep the old loader alive once it is no longer used.</p>
+ *
+ * <p>There is one cache per application, held in the context attribute named
+ * by {@link BundleSupport#CACHE_SIZE_PARAM}.</p>
+ *
+ * <p>Hits, misses and the time spent loading bundles on a miss are counted
+ * for each base name that resolved to a bundle; base names may come from
+ * request data, so names that resolve to nothing are not recorded. The bundles of a base name can be reloaded with
+ * {@link #invalidate(String)}; requests already using the old bundles
+ * keep them, and new requests see the new bundles only once they are
+ * completely loaded. The counters and invalidation are also available
+ * through JMX, see {@link BundleCacheListener}.</p>
+ */
+public final class LocalizationContextCache implements LocalizationContextCacheMBean {
+
+    private final int size;
+    private final Map<ClassLoader, ConcurrentCache<Key, Resolution>> loaders = new WeakHashMap<>();
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    // the partition most recently used, to avoid locking for the common single-loader case
+    private volatile Partition last;
+
+    LocalizationContextCache(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns a cached resolution.
+     *
+     * @param loader   the class loader bundles are loaded from
+     * @param basename the bundle base name
+     * @param locale   the configured locale, or null
+     * @param locales  the client's preferred locales if no locale is configured, otherwise null
+     * @param fallback the configured fallback locale, or null
+     * @return the localization context, or null if it has not been resolved
+     *         since the base name was last invalidated
+     */
+    LocalizationContext get(ClassLoader loader, String basename, Locale locale, List<Locale> locales,
+                            Locale fallback) {
+        Statistics stats = statistics.get(basename);
+        long generation = stats == null ? 0 : stats.generation;
+        Resolution resolution = partition(loader).get(new Key(basename, locale, locales, fallback));
+        if (resolution == null || resolution.generation != generation) {
+            if (stats != null) {
+                stats.misses.incrementAndGet();
+            }
+            return null;
+        }
+        if (stats != null) {
+            stats.hits.incrementAndGet();
+        }
+        return resolution.locCtxt;
+    }
+
+    /**
+     * Returns the current generation of a base name, to be passed to
+     * {@link #put} once a localization context has been resolved.
+     *
+     * @param basename the bundle base name
+     * @return the number of times the base name has been invalidated
+     */
+    long getGeneration(String basename) {
+        Statistics stats = statistics.get(basename);
+        return stats == null ? 0 : stats.generation;
+    }
+
+    /**
+     * Caches a resolution, unless the base name has been invalidated since
+     * the resolution started.
+     *
+     * @param loader     the class loader bundles are loaded from
+     * @param basename   the bundle base name
+     * @param locale     the configured locale, or null
+     * @param locales    the client's preferred locales if no locale is configured, otherwise null
+     * @param fallback   the configured fallback locale, or null
+     * @param locCtxt    the resolved localization context
+     * @param generation the generation of the base name when the resolution started
+     * @param loadTime   the time taken to resolve, in nanoseconds
+     */
+    void put(ClassLoader loader, String basename, Locale locale, List<Locale> locales, Locale fallback,
+             LocalizationContext locCtxt, long generation, long loadTime) {
+        Statistics stats = statistics.get(basename);
+        if (stats == null) {
+            if (locCtxt.getResourceBundle() == null) {
+                // get() checks the generation, so a stale entry is never used
+                partition(loader).put(new Key(basename, locale, locales, fallback),
+                        new Resolution(locCtxt, generation));
+                return;
+            }
+            stats = statistics(basename);
+            // get() did not count the miss before the base name was known
+            stats.misses.incrementAndGet();
+        }
+        stats.loadTime.addAndGet(loadTime);
+        synchronized (stats) {
+            // checked under the lock so an invalidation can not slip in between
+            if (stats.generation == generation) {
+                partition(loader).put(new Key(basename, locale, locales, fallback),
+                        new Resolution(locCtxt, generation));
+            }
+        }
+    }
+
+    /**
+     * Discards the resolutions for a base name, so that its bundles are
+     * loaded again by the next request that needs them.
+     *
+     * @param basename the bundle base name
+     */
+    public void invalidate(String basename) {
+        Statistics stats = statistics(basename);
+        synchronized (stats) {
+            stats.generation++;
+        }
+        clearBundleCaches();
+    }
+
+    /**
+     * Discards all resolutions, so that bundles are looked up again.
+     */
+    public void clear() {
+        for (Statistics stats : statistics.values()) {
+            synchronized (stats) {
+                stats.generation++;
+            }
+        }
+        synchronized (loaders) {
+            for (ConcurrentCache<Key, Resolution> cache : loaders.values()) {
+                cache.clear();
+            }
+        }
+        clearBundleCaches();
+    }
+
+    public String[] getBasenames() {
+        return new TreeSet<>(statistics.keySet()).toArray(new String[0]);
+    }
+
+    public long getHitCount(String basename) {
+        Statistics stats = statistics.get(basename);
+        return stats == null ? 0 : stats.hits.get();
+    }
+
+    public long getMissCount(String basename) {
+        Statistics stats = statistics.get(basename);
+        return stats == null ? 0 : stats.misses.get();
+    }
+
+    public long getLoadTime(String basename) {
+        Statistics stats = statistics.get(basename);
+        return stats == null ? 0 : stats.loadTime.get() / 1000000;
+    }
+
+    private Statistics statistics(String basename) {
+        Statistics stats = statistics.get(basename);
+        if (stats == null) {
+            Statistics created = new Statistics();
+            stats = statistics.putIfAbsent(basename, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /*
+     * Bundles are also cached by java.util.ResourceBundle, which can only
+     * drop all the bundles of a class loader.
+     */
+    private void clearBundleCaches() {
+        List<ClassLoader> known;
+        synchronized (loaders) {
+            known = new ArrayList<>(loaders.keySet());
+        }
+        for (ClassLoader loader : known) {
+            if (loader != null) {
+                ResourceBundle.clearCache(loader);
+            }
+        }
+    }
+
+    private ConcurrentCache<Key, Resolution> partition(ClassLoader loader) {
+        Partition p = last;
+        if (p != null && loader != null && p.loader.get() == loader) {
+            return p.cache;
+        }
+        ConcurrentCache<Key, Resolution> cache;
+        synchronized (loaders) {
+            cache = loaders.get(loader);
+            if (cache == null) {
+                cache = new ConcurrentCache<>(size);
+                loaders.put(loader, cache);
+            }
+        }
+        last = new Partition(loader, cache);
+        return cache;
+    }
+
+    private static class Statistics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong loadTime = new AtomicLong();
+        private volatile long generation;
+    }
+
+    private static class Resolution {
+        private final LocalizationContext locCtxt;
+        private final long generation;
+
+        Resolution(LocalizationContext locCtxt, long generation) {
+            this.locCtxt = locCtxt;
+            this.generation = generation;
+        }
+    }
+
+    private static class Partition {
+        private final WeakReference<ClassLoader> loader;
+        private final ConcurrentCache<Key, Resolution> cache;
+
+        Partition(ClassLoader loader, ConcurrentCache<Key, Resolution> cache) {
+            this.loader = new WeakReference<>(loader);
+            this.cache = cache;
+        }
+    }
+
+    private static final class Key {
+        private final String basename;
+        private final Locale locale;
+        private final List<Locale> locales;
+        private final Locale fallback;
+        private final int hash;
+
+        Key(String basename, Locale locale, List<Locale> locales, Locale fallback) {
+            this.basename = basename;
+            this.locale = locale;
+            this.locales = locales;
+            this.fallback = fallback;
+            int h = basename.hashCode();
+            h = 31 * h + (locale == null ? 0 : locale.hashCode());
+            h = 31 * h + (locales == null ? 0 : locales.hashCode());
+            h = 31 * h + (fallback == null ? 0 : fallback.hashCode());
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && basename.equals(other.basename)
+                    && (locale == null ? other.locale == null : locale.equals(other.locale))
+                    && (locales == null ? other.locales == null : locales.equals(other.locales))
+                    && (fallback == null ? other.fallback == null : fallback.equals(other.fallback));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.taglibs.standard.tag.common.fmt;
+
+/**
+ * The management interface of a {@link LocalizationContextCache}, registered
+ * with JMX by {@link BundleCacheListener}.
+ */
+public interface LocalizationContextCacheMBean {
+
+    /**
+     * Returns the base names that have been resolved to a bundle or
+     * invalidated.
+     *
+     * @return the base names, in alphabetical order
+     */
+    String[] getBasenames();
+
+    /**
+     * Returns the number of lookups for a base name answered from the cache.
+     *
+     * @param basename the bundle base name
+     * @return the number of hits
+     */
+    long getHitCount(String basename);
+
+    /**
+     * Returns the number of lookups for a base name that had to load bundles.
+     *
+     * @param basename the bundle base name
+     * @return the number of misses
+     */
+    long getMissCount(String basename);
+
+    /**
+     * Returns the total time spent loading bundles for a base name.
+     *
+     * @param basename the bundle base name
+     * @return the load time in milliseconds
+     */
+    long getLoadTime(String basename);
+
+    /**
+     * Discards the resolutions for a base name, so that its bundles are
+     * loaded again by the next request that needs them.
+     *
+     * @param basename the bundle base name
+     */
+    void invalidate(String basename);
+
+    /**
+     * Discards all resolutions, so that bundles are looked up again.
+     */
+    void clear();
+}
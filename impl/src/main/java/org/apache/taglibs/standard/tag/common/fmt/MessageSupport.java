@@ -33,6 +33,7 @@ import jakarta.servlet.jsp.tagext.BodyTagSupport;
 import jakarta.servlet.jsp.tagext.Tag;
 
 import org.apache.taglibs.standard.tag.common.core.Util;
+import org.apache.taglibs.standard.util.ConcurrentCache;
 
 /**
  * Support for tag handlers for &lt;message&gt;, the message formatting tag
@@ -49,6 +50,15 @@ public abstract class MessageSupport extends BodyTagSupport {
     public static final String UNDEFINED_KEY = "???";
 
 
+    //*********************************************************************
+    // Private constants
+
+    private static final int CACHE_SIZE = 1000;
+
+    // parsed message patterns, cloned for each use as MessageFormat is not thread-safe
+    private static final ConcurrentCache<FormatKey, MessageFormat> FORMATS = new ConcurrentCache<>(CACHE_SIZE);
+
+
     //*********************************************************************
     // Protected state
 
@@ -178,21 +188,14 @@ public abstract class MessageSupport extends BodyTagSupport {
                     // Perform parametric replacement if required
                     if (!params.isEmpty()) {
                         Object[] messageArgs = params.toArray();
-                        MessageFormat formatter = new MessageFormat(""); // empty pattern, default Locale
-                        if (locCtxt.getLocale() != null) {
-                            formatter.setLocale(locCtxt.getLocale());
-                        } else {
+                        Locale locale = locCtxt.getLocale();
+                        if (locale == null) {
                             // For consistency with the <fmt:formatXXX> actions,
                             // we try to get a locale that matches the user's preferences
                             // as well as the locales supported by 'date' and 'number'.
-                            //System.out.println("LOCALE-LESS LOCCTXT: GETTING FORMATTING LOCALE");
-                            Locale locale = SetLocaleSupport.getFormattingLocale(pageContext);
-                            //System.out.println("LOCALE: " + locale);
-                            if (locale != null) {
-                                formatter.setLocale(locale);
-                            }
+                            locale = SetLocaleSupport.getFormattingLocale(pageContext);
                         }
-                        formatter.applyPattern(message);
+                        MessageFormat formatter = getMessageFormat(message, locale);
                         message = formatter.format(messageArgs);
                     }
                 } catch (MissingResourceException mre) {
@@ -220,4 +223,56 @@ public abstract class MessageSupport extends BodyTagSupport {
     public void release() {
         init();
     }
+
+
+    //*********************************************************************
+    // Package utility methods
+
+    /*
+     * Returns a formatter for the given pattern and locale, parsing the
+     * pattern only if it has not been seen with that locale before.
+     *
+     * @param pattern the message pattern
+     * @param locale the formatting locale, or <tt>null</tt> for the default
+     * formatting locale
+     *
+     * @return a formatter for the calling thread's exclusive use
+     */
+
+    static MessageFormat getMessageFormat(String pattern, Locale locale) {
+        if (locale == null) {
+            locale = Locale.getDefault(Locale.Category.FORMAT);
+        }
+        FormatKey key = new FormatKey(pattern, locale);
+        MessageFormat prototype = FORMATS.get(key);
+        if (prototype == null) {
+            prototype = new MessageFormat(pattern, locale);
+            FORMATS.put(key, prototype);
+        }
+        return (MessageFormat) prototype.clone();
+    }
+
+    private static final class FormatKey {
+        private final String pattern;
+        private final Locale locale;
+
+        FormatKey(String pattern, Locale locale) {
+            this.pattern = pattern;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FormatKey)) {
+                return false;
+            }
+            FormatKey other = (FormatKey) o;
+            return pattern.equals(other.pattern) && locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * pattern.hashCode() + locale.hashCode();
+        }
+    }
 }
@@ -32,6 +32,7 @@ import jakarta.servlet.jsp.tagext.BodyTagSupport;
 
 import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.tag.common.core.Util;
+import org.apache.taglibs.standard.util.ConcurrentCache;
 
 /**
  * Support for tag handlers for &lt;parseDate&gt;, the date and time
@@ -49,6 +50,11 @@ public abstract class ParseDateSupport extends BodyTagSupport {
     private static final String TIME = "time";
     private static final String DATETIME = "both";
 
+    private static final int CACHE_SIZE = 1000;
+
+    // configured parsers, cloned for each use as DateFormat is not thread-safe
+    private static final ConcurrentCache<DateFormatKey, DateFormat> PARSERS = new ConcurrentCache<>(CACHE_SIZE);
+
 
     //*********************************************************************
     // Protected state
@@ -136,7 +142,7 @@ public abstract class ParseDateSupport extends BodyTagSupport {
                     pageContext,
                     this,
                     false,
-                    DateFormat.getAvailableLocales());
+                    SetLocaleSupport.DATE_LOCALES);
         }
         if (locale == null) {
             throw new JspException(
@@ -144,16 +150,7 @@ public abstract class ParseDateSupport extends BodyTagSupport {
         }
 
         // Create parser
-        DateFormat parser = createParser(locale);
-
-        // Apply pattern, if present
-        if (pattern != null) {
-            try {
-                ((SimpleDateFormat) parser).applyPattern(pattern);
-            } catch (ClassCastException cce) {
-                parser = new SimpleDateFormat(pattern, locale);
-            }
-        }
+        DateFormat parser = getParser(locale);
 
         // Set time zone
         TimeZone tz = null;
@@ -162,7 +159,7 @@ public abstract class ParseDateSupport extends BodyTagSupport {
         }
         if (timeZone != null) {
             if (timeZone instanceof String) {
-                tz = TimeZone.getTimeZone((String) timeZone);
+                tz = TimeZoneSupport.getTimeZone((String) timeZone);
             } else if (timeZone instanceof TimeZone) {
                 tz = (TimeZone) timeZone;
             } else {
@@ -207,6 +204,35 @@ public abstract class ParseDateSupport extends BodyTagSupport {
     }
 
 
+    //*********************************************************************
+    // Package utility methods
+
+    /*
+     * Returns a parser for the given locale configured by this tag's
+     * attributes. A copy of a cached parser is returned for the calling
+     * thread's exclusive use.
+     */
+
+    DateFormat getParser(Locale loc) throws JspException {
+        DateFormatKey key = new DateFormatKey(loc, type, dateStyle, timeStyle, pattern, null);
+        DateFormat prototype = PARSERS.get(key);
+        if (prototype == null) {
+            prototype = createParser(loc);
+
+            // Apply pattern, if present
+            if (pattern != null) {
+                try {
+                    ((SimpleDateFormat) prototype).applyPattern(pattern);
+                } catch (ClassCastException cce) {
+                    prototype = new SimpleDateFormat(pattern, loc);
+                }
+            }
+            PARSERS.put(key, prototype);
+        }
+        return (DateFormat) prototype.clone();
+    }
+
+
     //*********************************************************************
     // Private utility methods
 
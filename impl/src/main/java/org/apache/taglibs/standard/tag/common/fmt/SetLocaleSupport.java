@@ -20,10 +20,10 @@ package org.apache.taglibs.standard.tag.common.fmt;
 import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
 
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.jsp.JspException;
@@ -45,9 +45,25 @@ import org.apache.taglibs.standard.tag.common.core.Util;
 public abstract class SetLocaleSupport extends TagSupport {
 
 
+    //*********************************************************************
+    // Public constants
+
+    /**
+     * Name of the context initialization parameter that, when set to
+     * <code>true</code>, makes formatting actions set the response locale
+     * and the request charset session attribute only when they change.
+     * This avoids marking the session as modified on every action, which
+     * matters when sessions are replicated.
+     */
+    public static final String WRITE_IF_CHANGED_PARAM = "org.apache.taglibs.standard.fmt.writeLocaleIfChanged";
+
+
     //*********************************************************************
     // Private constants
 
+    // the locale last given to the response by setResponseLocale
+    private static final String RESPONSE_LOCALE = "org.apache.taglibs.standard.responseLocale";
+
 
     //*********************************************************************
     // Protected state
@@ -136,6 +152,11 @@ public abstract class SetLocaleSupport extends TagSupport {
      */
 
     static void setResponseLocale(PageContext pc, Locale locale) {
+        if (isWriteIfChanged(pc)) {
+            setResponseLocaleIfChanged(pc, locale);
+            return;
+        }
+
         // set response locale
         ServletResponse response = pc.getResponse();
         response.setLocale(locale);
@@ -151,6 +172,40 @@ public abstract class SetLocaleSupport extends TagSupport {
         }
     }
 
+    /*
+     * As setResponseLocale, but leaves the response alone if this request
+     * already gave it the locale, and only writes the session attribute if
+     * its value differs.
+     */
+
+    private static void setResponseLocaleIfChanged(PageContext pc, Locale locale) {
+        ServletResponse response = pc.getResponse();
+        if (!locale.equals(pc.getAttribute(RESPONSE_LOCALE, PageContext.REQUEST_SCOPE))
+                || !locale.equals(response.getLocale())) {
+            response.setLocale(locale);
+            pc.setAttribute(RESPONSE_LOCALE, locale, PageContext.REQUEST_SCOPE);
+        }
+
+        if (pc.getSession() != null) {
+            try {
+                String charset = response.getCharacterEncoding();
+                Object current = pc.getAttribute(RequestEncodingSupport.REQUEST_CHAR_SET,
+                        PageContext.SESSION_SCOPE);
+                if (charset == null ? current != null : !charset.equals(current)) {
+                    pc.setAttribute(RequestEncodingSupport.REQUEST_CHAR_SET, charset,
+                            PageContext.SESSION_SCOPE);
+                }
+            } catch (IllegalStateException ex) {
+            } // invalidated session ignored
+        }
+    }
+
+    private static boolean isWriteIfChanged(PageContext pc) {
+        ServletContext servletContext = pc.getServletContext();
+        return servletContext != null
+                && Boolean.parseBoolean(servletContext.getInitParameter(WRITE_IF_CHANGED_PARAM));
+    }
+
     /*
     * Returns the formatting locale to use with the given formatting action
     * in the given page.
@@ -162,7 +217,7 @@ public abstract class SetLocaleSupport extends TagSupport {
     * (if set to <tt>true</tt>, the formatting locale that is returned by
     * this method is used to set the response locale).
     *
-    * @param avail the array of available locales
+    * @param avail the available locales
     *
     * @return the formatting locale to use
     */
@@ -170,7 +225,7 @@ public abstract class SetLocaleSupport extends TagSupport {
     static Locale getFormattingLocale(PageContext pc,
                                       Tag fromTag,
                                       boolean format,
-                                      Locale[] avail) {
+                                      LocaleIndex avail) {
 
         LocalizationContext locCtxt;
 
@@ -209,16 +264,16 @@ public abstract class SetLocaleSupport extends TagSupport {
         Locale pref = getLocale(pc, Config.FMT_LOCALE);
         if (pref != null) {
             // Preferred locale is application-based
-            match = findFormattingMatch(pref, avail);
+            match = avail.match(pref);
         } else {
             // Preferred locales are browser-based
-            match = findFormattingMatch(pc, avail);
+            match = avail.match((HttpServletRequest) pc.getRequest());
         }
         if (match == null) {
             //Use fallback locale.
             pref = getLocale(pc, Config.FMT_FALLBACK_LOCALE);
             if (pref != null) {
-                match = findFormattingMatch(pref, avail);
+                match = avail.match(pref);
             }
         }
         if (format && (match != null)) {
@@ -234,6 +289,14 @@ public abstract class SetLocaleSupport extends TagSupport {
      */
     static Locale[] availableFormattingLocales;
 
+    /*
+     * Indexes of the locales available for formatting dates, numbers, and
+     * both, for matching against preferred locales.
+     */
+    static final LocaleIndex DATE_LOCALES = new LocaleIndex(DateFormat.getAvailableLocales());
+    static final LocaleIndex NUMBER_LOCALES = new LocaleIndex(NumberFormat.getAvailableLocales());
+    static final LocaleIndex FORMATTING_LOCALES;
+
     static {
         Locale[] dateLocales = DateFormat.getAvailableLocales();
         Locale[] numberLocales = NumberFormat.getAvailableLocales();
@@ -247,6 +310,7 @@ public abstract class SetLocaleSupport extends TagSupport {
             }
         }
         availableFormattingLocales = locales.toArray(new Locale[locales.size()]);
+        FORMATTING_LOCALES = new LocaleIndex(availableFormattingLocales);
     }
 
     /*
@@ -267,16 +331,16 @@ public abstract class SetLocaleSupport extends TagSupport {
         Locale pref = getLocale(pc, Config.FMT_LOCALE);
         if (pref != null) {
             // Preferred locale is application-based
-            match = findFormattingMatch(pref, availableFormattingLocales);
+            match = FORMATTING_LOCALES.match(pref);
         } else {
             // Preferred locales are browser-based
-            match = findFormattingMatch(pc, availableFormattingLocales);
+            match = FORMATTING_LOCALES.match((HttpServletRequest) pc.getRequest());
         }
         if (match == null) {
             //Use fallback locale.
             pref = getLocale(pc, Config.FMT_FALLBACK_LOCALE);
             if (pref != null) {
-                match = findFormattingMatch(pref, availableFormattingLocales);
+                match = FORMATTING_LOCALES.match(pref);
             }
         }
         if (match != null) {
@@ -319,83 +383,4 @@ public abstract class SetLocaleSupport extends TagSupport {
 
         return loc;
     }
-
-
-    //*********************************************************************
-    // Private utility methods
-
-    /*
-     * Determines the client's preferred locales from the request, and compares
-     * each of the locales (in order of preference) against the available
-     * locales in order to determine the best matching locale.
-     *
-     * @param pageContext Page containing the formatting action
-     * @param avail Available formatting locales
-     *
-     * @return Best matching locale, or <tt>null</tt> if no match was found
-     */
-
-    private static Locale findFormattingMatch(PageContext pageContext,
-                                              Locale[] avail) {
-        Locale match = null;
-        for (Enumeration enum_ = Util.getRequestLocales((HttpServletRequest) pageContext.getRequest());
-             enum_.hasMoreElements();) {
-            Locale locale = (Locale) enum_.nextElement();
-            match = findFormattingMatch(locale, avail);
-            if (match != null) {
-                break;
-            }
-        }
-
-        return match;
-    }
-
-    /*
-     * Returns the best match between the given preferred locale and the
-     * given available locales.
-     *
-     * The best match is given as the first available locale that exactly
-     * matches the given preferred locale ("exact match"). If no exact match
-     * exists, the best match is given to an available locale that meets
-     * the following criteria (in order of priority):
-     *  - available locale's variant is empty and exact match for both
-     *    language and country
-     *  - available locale's variant and country are empty, and exact match 
-     *    for language.
-     *
-     * @param pref the preferred locale
-     * @param avail the available formatting locales
-     *
-     * @return Available locale that best matches the given preferred locale,
-     * or <tt>null</tt> if no match exists
-     */
-
-    private static Locale findFormattingMatch(Locale pref, Locale[] avail) {
-        Locale match = null;
-        boolean langAndCountryMatch = false;
-        for (Locale locale : avail) {
-            if (pref.equals(locale)) {
-                // Exact match
-                match = locale;
-                break;
-            } else if (
-                    !"".equals(pref.getVariant()) &&
-                            "".equals(locale.getVariant()) &&
-                            pref.getLanguage().equals(locale.getLanguage()) &&
-                            pref.getCountry().equals(locale.getCountry())) {
-                // Language and country match; different variant
-                match = locale;
-                langAndCountryMatch = true;
-            } else if (
-                    !langAndCountryMatch &&
-                            pref.getLanguage().equals(locale.getLanguage()) &&
-                            ("".equals(locale.getCountry()))) {
-                // Language match
-                if (match == null) {
-                    match = locale;
-                }
-            }
-        }
-        return match;
-    }
 }
@@ -82,19 +82,8 @@ public abstract class SetTimeZoneSupport extends TagSupport {
 
     @Override
     public int doEndTag() throws JspException {
-        TimeZone timeZone = null;
-
-        if (value == null) {
-            timeZone = TimeZone.getTimeZone("GMT");
-        } else if (value instanceof String) {
-            if (((String) value).trim().equals("")) {
-                timeZone = TimeZone.getTimeZone("GMT");
-            } else {
-                timeZone = TimeZone.getTimeZone((String) value);
-            }
-        } else {
-            timeZone = (TimeZone) value;
-        }
+        // the zone may be shared with other tags, so a copy is published
+        TimeZone timeZone = (TimeZone) TimeZoneSupport.toTimeZone(value).clone();
 
         if (var != null) {
             pageContext.setAttribute(var, timeZone, scope);
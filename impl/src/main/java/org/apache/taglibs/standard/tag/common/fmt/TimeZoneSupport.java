@@ -18,6 +18,7 @@
 package org.apache.taglibs.standard.tag.common.fmt;
 
 import java.io.IOException;
+import java.time.ZoneId;
 import java.util.TimeZone;
 
 import jakarta.servlet.jsp.JspException;
@@ -27,6 +28,8 @@ import jakarta.servlet.jsp.jstl.core.Config;
 import jakarta.servlet.jsp.tagext.BodyTagSupport;
 import jakarta.servlet.jsp.tagext.Tag;
 
+import org.apache.taglibs.standard.util.ConcurrentCache;
+
 /**
  * Support for tag handlers for &lt;timeZone&gt;, the time zone tag in
  * JSTL 1.0.
@@ -37,6 +40,20 @@ import jakarta.servlet.jsp.tagext.Tag;
 public abstract class TimeZoneSupport extends BodyTagSupport {
 
 
+    //*********************************************************************
+    // Private constants
+
+    private static final String GMT = "GMT";
+
+    private static final int CACHE_SIZE = 1000;
+
+    // time zones by ID, shared by all tags so they must never be modified
+    private static final ConcurrentCache<String, TimeZone> ZONES = new ConcurrentCache<>(CACHE_SIZE);
+
+    // java.time zones by java.util.TimeZone ID
+    private static final ConcurrentCache<String, ZoneId> ZONE_IDS = new ConcurrentCache<>(CACHE_SIZE);
+
+
     //*********************************************************************
     // Protected state
 
@@ -66,7 +83,8 @@ public abstract class TimeZoneSupport extends BodyTagSupport {
     // Collaboration with subtags
 
     public TimeZone getTimeZone() {
-        return timeZone;
+        // the zone may be shared with other tags, so callers get a copy
+        return timeZone == null ? null : (TimeZone) timeZone.clone();
     }
 
 
@@ -76,17 +94,7 @@ public abstract class TimeZoneSupport extends BodyTagSupport {
     @Override
     public int doStartTag() throws JspException {
 
-        if (value == null) {
-            timeZone = TimeZone.getTimeZone("GMT");
-        } else if (value instanceof String) {
-            if (((String) value).trim().equals("")) {
-                timeZone = TimeZone.getTimeZone("GMT");
-            } else {
-                timeZone = TimeZone.getTimeZone((String) value);
-            }
-        } else {
-            timeZone = (TimeZone) value;
-        }
+        timeZone = toTimeZone(value);
 
         return EVAL_BODY_BUFFERED;
     }
@@ -140,7 +148,7 @@ public abstract class TimeZoneSupport extends BodyTagSupport {
         if (t != null) {
             // use time zone from parent <timeZone> tag
             TimeZoneSupport parent = (TimeZoneSupport) t;
-            tz = parent.getTimeZone();
+            tz = parent.timeZone;
         } else {
             // get time zone from configuration setting
             Object obj = Config.find(pc, Config.FMT_TIME_ZONE);
@@ -148,11 +156,63 @@ public abstract class TimeZoneSupport extends BodyTagSupport {
                 if (obj instanceof TimeZone) {
                     tz = (TimeZone) obj;
                 } else {
-                    tz = TimeZone.getTimeZone((String) obj);
+                    tz = getTimeZone((String) obj);
                 }
             }
         }
 
         return tz;
     }
+
+    /*
+     * Converts the value of a 'value' attribute of &lt;timeZone&gt; or
+     * &lt;setTimeZone&gt; to a time zone. A null or empty value stands for
+     * GMT. The zone may be shared, so it must be copied before it is made
+     * available outside the tag library.
+     */
+
+    static TimeZone toTimeZone(Object value) {
+        if (value == null) {
+            return getTimeZone(GMT);
+        } else if (value instanceof String) {
+            if (((String) value).trim().equals("")) {
+                return getTimeZone(GMT);
+            } else {
+                return getTimeZone((String) value);
+            }
+        } else {
+            return (TimeZone) value;
+        }
+    }
+
+    /*
+     * Returns the time zone for the given ID, or GMT if the ID is not
+     * understood, as TimeZone.getTimeZone(String) does. Unlike that method
+     * the same instance is returned for the same ID, so it must not be
+     * modified.
+     */
+
+    static TimeZone getTimeZone(String id) {
+        TimeZone tz = ZONES.get(id);
+        if (tz == null) {
+            tz = TimeZone.getTimeZone(id);
+            ZONES.put(id, tz);
+        }
+        return tz;
+    }
+
+    /*
+     * Returns the java.time equivalent of the given time zone, as
+     * TimeZone.toZoneId() does, without parsing its ID each time.
+     */
+
+    static ZoneId toZoneId(TimeZone tz) {
+        String id = tz.getID();
+        ZoneId zone = ZONE_IDS.get(id);
+        if (zone == null) {
+            zone = tz.toZoneId();
+            ZONE_IDS.put(id, zone);
+        }
+        return zone;
+    }
 }
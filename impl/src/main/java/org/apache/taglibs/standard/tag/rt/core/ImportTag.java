@@ -51,4 +51,28 @@ public class ImportTag extends ImportSupport {
         this.charEncoding = charEncoding;
     }
 
+    // for tag attribute
+
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    // for tag attribute
+
+    public void setCacheTtl(int cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    // for tag attribute
+
+    public void setCacheVary(String cacheVary) {
+        this.cacheVary = cacheVary;
+    }
+
+    // for tag attribute
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
 }
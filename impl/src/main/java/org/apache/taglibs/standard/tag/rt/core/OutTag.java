@@ -30,6 +30,7 @@ public class OutTag extends OutSupport {
     private Object value;
     private String def;
     private boolean escapeXml = true;
+    private String escapeMode;
 
     //*********************************************************************
     // Accessors
@@ -39,6 +40,7 @@ public class OutTag extends OutSupport {
         value = null;
         def = null;
         escapeXml = false;
+        escapeMode = null;
         super.release();
     }
 
@@ -60,6 +62,12 @@ public class OutTag extends OutSupport {
         this.escapeXml = escapeXml;
     }
 
+    // for tag attribute
+
+    public void setEscapeMode(String escapeMode) {
+        this.escapeMode = escapeMode;
+    }
+
     @Override
     protected Object evalValue() {
         return value;
@@ -74,4 +82,9 @@ public class OutTag extends OutSupport {
     protected boolean evalEscapeXml() {
         return escapeXml;
     }
+
+    @Override
+    protected String evalEscapeMode() {
+        return escapeMode;
+    }
 }
@@ -17,10 +17,12 @@
 
 package org.apache.taglibs.standard.tag.rt.fmt;
 
+import java.time.temporal.TemporalAccessor;
 import java.util.Date;
 
 import jakarta.servlet.jsp.JspTagException;
 
+import org.apache.taglibs.standard.resources.Resources;
 import org.apache.taglibs.standard.tag.common.fmt.FormatDateSupport;
 
 /**
@@ -37,8 +39,16 @@ public class FormatDateTag extends FormatDateSupport {
 
     // 'value' attribute
 
-    public void setValue(Date value) throws JspTagException {
-        this.value = value;
+    public void setValue(Object value) throws JspTagException {
+        this.value = null;
+        this.temporalValue = null;
+        if (value instanceof Date) {
+            this.value = (Date) value;
+        } else if (value instanceof TemporalAccessor) {
+            this.temporalValue = (TemporalAccessor) value;
+        } else if (value != null) {
+            throw new JspTagException(Resources.getMessage("FORMAT_DATE_BAD_VALUE"));
+        }
     }
 
     // 'type' attribute
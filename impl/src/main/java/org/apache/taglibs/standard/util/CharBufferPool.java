@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small pool of fixed-size char buffers used when copying from Readers.
+ * <p>The pool is a fixed array of slots claimed with atomic operations rather
+ * than a ThreadLocal, so buffers are shared between threads and do not pile
+ * up when requests run on short-lived (e.g. virtual) threads. If all slots are
+ * empty a new buffer is allocated; if all are full a returned buffer is simply
+ * dropped.</p>
+ */
+public final class CharBufferPool {
+
+    /**
+     * Size of the pooled buffers.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final CharBufferPool INSTANCE = new CharBufferPool(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final AtomicReferenceArray<char[]> slots;
+
+    CharBufferPool(int size) {
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Returns the shared pool.
+     *
+     * @return the shared pool
+     */
+    public static CharBufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Takes a buffer of {@link #BUFFER_SIZE} chars from the pool, allocating one if none is available.
+     * The buffer should be returned with {@link #release(char[])} once it is no longer used.
+     *
+     * @return a buffer
+     */
+    public char[] acquire() {
+        for (int i = 0; i < slots.length(); i++) {
+            char[] buffer = slots.getAndSet(i, null);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param buffer a buffer obtained from {@link #acquire()}
+     */
+    public void release(char[] buffer) {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+}
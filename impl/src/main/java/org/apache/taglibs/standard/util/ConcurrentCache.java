@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A size-bounded cache that is cheap to read from many threads.
+ * <p>Entries are first placed in a concurrent "eden" map. When that fills
+ * up its content is moved to a weakly-referenced long-term map that the
+ * garbage collector can reclaim; entries found there are promoted back
+ * into eden. This keeps frequently used entries hot without needing a
+ * lock on the read path for them.</p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class ConcurrentCache<K, V> {
+
+    private final int size;
+    private final Map<K, V> eden;
+    private final Map<K, V> longterm;
+
+    /**
+     * Create a cache.
+     *
+     * @param size the number of entries kept in eden before it is recycled
+     */
+    public ConcurrentCache(int size) {
+        this.size = size;
+        this.eden = new ConcurrentHashMap<>(size);
+        this.longterm = new WeakHashMap<>(size);
+    }
+
+    /**
+     * Returns the value cached for a key.
+     *
+     * @param k the key; must not be null
+     * @return the cached value or null if there is none
+     */
+    public V get(K k) {
+        V v = eden.get(k);
+        if (v == null) {
+            synchronized (longterm) {
+                v = longterm.get(k);
+            }
+            if (v != null) {
+                eden.put(k, v);
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Adds a value to the cache.
+     *
+     * @param k the key; must not be null
+     * @param v the value; must not be null
+     */
+    public void put(K k, V v) {
+        if (eden.size() >= size) {
+            synchronized (longterm) {
+                longterm.putAll(eden);
+            }
+            eden.clear();
+        }
+        eden.put(k, v);
+    }
+
+    /**
+     * Removes a value from the cache.
+     *
+     * @param k the key; must not be null
+     */
+    public void remove(K k) {
+        eden.remove(k);
+        synchronized (longterm) {
+            longterm.remove(k);
+        }
+    }
+
+    /**
+     * Removes all values from the cache.
+     */
+    public void clear() {
+        eden.clear();
+        synchronized (longterm) {
+            longterm.clear();
+        }
+    }
+}
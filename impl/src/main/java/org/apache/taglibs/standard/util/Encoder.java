@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import jakarta.servlet.jsp.JspWriter;
+
+/**
+ * Encodes text so that it can be safely included in a particular output context.
+ * <p>Each encoder is driven by a table giving the replacement for every ASCII
+ * character, in the same way as {@link EscapeXML}. Characters outside ASCII
+ * are passed to {@link #escapeCodePoint(int)}. Text can be encoded into a new
+ * String or emitted directly to a JspWriter without intermediate copies.</p>
+ * <p>The supported contexts are:
+ * <table rules="all" frame="border">
+ * <thead align="center">
+ * <tr><th>Name</th><th>Use</th></tr>
+ * </thead>
+ * <tbody>
+ * <tr><td>xml</td><td>XML or HTML content, as for &lt;c:out escapeXml="true"&gt;</td></tr>
+ * <tr><td>htmlAttribute</td><td>quoted or unquoted HTML attribute values</td></tr>
+ * <tr><td>javascript</td><td>quoted JavaScript string literals, including inside &lt;script&gt; blocks</td></tr>
+ * <tr><td>url</td><td>URL path segments or query components, percent-encoded as UTF-8</td></tr>
+ * <tr><td>css</td><td>quoted CSS string values</td></tr>
+ * </tbody>
+ * </table>
+ */
+public abstract class Encoder {
+
+    // must be initialized before the tables below are built
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Encoder for XML or HTML content.
+     */
+    public static final Encoder XML = new XmlEncoder();
+
+    /**
+     * Encoder for HTML attribute values.
+     */
+    public static final Encoder HTML_ATTRIBUTE = new TableEncoder("htmlAttribute", htmlAttributeTable());
+
+    /**
+     * Encoder for JavaScript string literals.
+     */
+    public static final Encoder JAVASCRIPT = new JavaScriptEncoder();
+
+    /**
+     * Encoder for URL components.
+     */
+    public static final Encoder URL = new UrlEncoder();
+
+    /**
+     * Encoder for CSS string values.
+     */
+    public static final Encoder CSS = new TableEncoder("css", cssTable());
+
+    private static final Encoder[] ENCODERS = {XML, HTML_ATTRIBUTE, JAVASCRIPT, URL, CSS};
+
+    private final String name;
+    private final String[] table;
+
+    Encoder(String name, String[] table) {
+        this.name = name;
+        this.table = table;
+    }
+
+    /**
+     * Returns the encoder with the given name.
+     *
+     * @param name the name of the encoder
+     * @return the encoder, or null if there is none with that name
+     */
+    public static Encoder forName(String name) {
+        for (Encoder encoder : ENCODERS) {
+            if (encoder.name.equals(name)) {
+                return encoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of this encoder.
+     *
+     * @return the name of this encoder
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the replacement for a character outside the ASCII range.
+     *
+     * @param codePoint the character
+     * @return the replacement, or null if the character can be written as-is
+     */
+    String escapeCodePoint(int codePoint) {
+        return null;
+    }
+
+    /**
+     * Encode a string.
+     *
+     * @param src the string to encode; must not be null
+     * @return the encoded string
+     */
+    public String encode(String src) {
+        int end = src.length();
+        int from = 0;
+        StringBuilder buf = null;
+        for (int to = 0; to < end; ) {
+            char c = src.charAt(to);
+            String escape;
+            int next;
+            if (c < table.length) {
+                escape = table[c];
+                next = to + 1;
+            } else {
+                int codePoint = Character.codePointAt(src, to);
+                escape = escapeCodePoint(codePoint);
+                next = to + Character.charCount(codePoint);
+            }
+            if (escape != null) {
+                if (buf == null) {
+                    buf = new StringBuilder(end + 16);
+                }
+                buf.append(src, from, to).append(escape);
+                from = next;
+            }
+            to = next;
+        }
+        if (buf == null) {
+            return src;
+        }
+        return buf.append(src, from, end).toString();
+    }
+
+    /**
+     * Emit the supplied object to the specified writer, encoding it as it goes.
+     * {@link SafeMarkup} is written as-is.
+     *
+     * @param src the object to write
+     * @param out the JspWriter to emit to
+     * @throws IOException if there was a problem emitting the content
+     */
+    public void emit(Object src, JspWriter out) throws IOException {
+        if (src instanceof SafeMarkup) {
+            out.write(src.toString());
+        } else if (src instanceof Reader) {
+            emit((Reader) src, out);
+        } else {
+            emit(String.valueOf(src), out);
+        }
+    }
+
+    /**
+     * Emit encoded content into the specified JSPWriter.
+     *
+     * @param src the string to encode; must not be null
+     * @param out the JspWriter to emit to
+     * @throws IOException if there was a problem emitting the content
+     */
+    public void emit(String src, JspWriter out) throws IOException {
+        int end = src.length();
+        int from = 0;
+        for (int to = 0; to < end; ) {
+            char c = src.charAt(to);
+            String escape;
+            int next;
+            if (c < table.length) {
+                escape = table[c];
+                next = to + 1;
+            } else {
+                int codePoint = Character.codePointAt(src, to);
+                escape = escapeCodePoint(codePoint);
+                next = to + Character.charCount(codePoint);
+            }
+            if (escape != null) {
+                if (to != from) {
+                    out.write(src, from, to - from);
+                }
+                out.write(escape);
+                from = next;
+            }
+            to = next;
+        }
+        if (from != end) {
+            out.write(src, from, end - from);
+        }
+    }
+
+    /**
+     * Copy the content of a Reader into the specified JSPWriter, encoding it as it goes.
+     *
+     * @param src the Reader to read from
+     * @param out the JspWriter to emit to
+     * @throws IOException if there was a problem emitting the content
+     */
+    public void emit(Reader src, JspWriter out) throws IOException {
+        CharBufferPool pool = CharBufferPool.getInstance();
+        char[] buffer = pool.acquire();
+        try {
+            // keep one spare slot so a surrogate pair split by a read can be completed
+            int chunkSize = EscapeXML.chunkSize(out, buffer.length - 1);
+            int count;
+            while ((count = src.read(buffer, 0, chunkSize)) > 0) {
+                if (Character.isHighSurrogate(buffer[count - 1])) {
+                    int c = src.read();
+                    if (c != -1) {
+                        buffer[count++] = (char) c;
+                    }
+                }
+                emit(buffer, 0, count, out);
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Emit encoded content into the specified JSPWriter.
+     *
+     * @param buffer characters to encode
+     * @param from   start position in the buffer
+     * @param count  number of characters to emit
+     * @param out    the JspWriter to emit to
+     * @throws IOException if there was a problem emitting the content
+     */
+    public void emit(char[] buffer, int from, int count, JspWriter out) throws IOException {
+        int end = from + count;
+        for (int to = from; to < end; ) {
+            char c = buffer[to];
+            String escape;
+            int next;
+            if (c < table.length) {
+                escape = table[c];
+                next = to + 1;
+            } else {
+                int codePoint = Character.codePointAt(buffer, to, end);
+                escape = escapeCodePoint(codePoint);
+                next = to + Character.charCount(codePoint);
+            }
+            if (escape != null) {
+                if (to != from) {
+                    out.write(buffer, from, to - from);
+                }
+                out.write(escape);
+                from = next;
+            }
+            to = next;
+        }
+        if (from != end) {
+            out.write(buffer, from, end - from);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String hex(int c, int digits) {
+        char[] chars = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[i] = HEX[c & 0xF];
+            c >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static String[] htmlAttributeTable() {
+        String[] table = new String[128];
+        table['<'] = "&lt;";
+        table['>'] = "&gt;";
+        table['&'] = "&amp;";
+        table['\''] = "&#039;";
+        table['"'] = "&#034;";
+        // characters that can terminate or alter an unquoted attribute value
+        table['`'] = "&#096;";
+        table['='] = "&#061;";
+        table[' '] = "&#032;";
+        table['\t'] = "&#009;";
+        table['\n'] = "&#010;";
+        table['\r'] = "&#013;";
+        table['\f'] = "&#012;";
+        return table;
+    }
+
+    private static String[] javaScriptTable() {
+        String[] table = new String[128];
+        for (int c = 0; c < ' '; c++) {
+            table[c] = "\\u" + hex(c, 4);
+        }
+        table['\b'] = "\\b";
+        table['\t'] = "\\t";
+        table['\n'] = "\\n";
+        table['\f'] = "\\f";
+        table['\r'] = "\\r";
+        table['\\'] = "\\\\";
+        table['\''] = "\\x27";
+        table['"'] = "\\x22";
+        // prevent the literal closing a surrounding <script> or HTML context
+        table['/'] = "\\/";
+        table['<'] = "\\x3C";
+        table['>'] = "\\x3E";
+        table['&'] = "\\x26";
+        table[0x7F] = "\\x7F";
+        return table;
+    }
+
+    private static String[] urlTable() {
+        String[] table = new String[128];
+        for (int c = 0; c < table.length; c++) {
+            boolean unreserved = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~';
+            if (!unreserved) {
+                table[c] = "%" + hex(c, 2);
+            }
+        }
+        return table;
+    }
+
+    private static String[] cssTable() {
+        String[] table = new String[128];
+        for (int c = 0; c < table.length; c++) {
+            boolean alphanumeric = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+            if (!alphanumeric) {
+                // the trailing space terminates the escape and is consumed by the CSS parser
+                table[c] = "\\" + Integer.toHexString(c) + " ";
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Encoder using only its ASCII table.
+     */
+    private static class TableEncoder extends Encoder {
+        TableEncoder(String name, String[] table) {
+            super(name, table);
+        }
+    }
+
+    /**
+     * Delegates to EscapeXML so that output is identical to escapeXml="true".
+     */
+    private static class XmlEncoder extends Encoder {
+        XmlEncoder() {
+            super("xml", new String[0]);
+        }
+
+        @Override
+        public String encode(String src) {
+            return EscapeXML.escape(src);
+        }
+
+        @Override
+        public void emit(String src, JspWriter out) throws IOException {
+            EscapeXML.emit(src, out);
+        }
+
+        @Override
+        public void emit(Reader src, JspWriter out) throws IOException {
+            EscapeXML.emit(src, true, out);
+        }
+
+        @Override
+        public void emit(char[] buffer, int from, int count, JspWriter out) throws IOException {
+            EscapeXML.emit(buffer, from, count, out);
+        }
+    }
+
+    private static class JavaScriptEncoder extends Encoder {
+        JavaScriptEncoder() {
+            super("javascript", javaScriptTable());
+        }
+
+        @Override
+        String escapeCodePoint(int codePoint) {
+            // line and paragraph separators terminate string literals in older engines
+            if (codePoint == 0x2028 || codePoint == 0x2029) {
+                return "\\u" + hex(codePoint, 4);
+            }
+            return null;
+        }
+    }
+
+    private static class UrlEncoder extends Encoder {
+        UrlEncoder() {
+            super("url", urlTable());
+        }
+
+        @Override
+        String escapeCodePoint(int codePoint) {
+            if (Character.isSurrogate((char) codePoint) && codePoint <= Character.MAX_VALUE) {
+                // unpaired surrogate; encode as U+FFFD REPLACEMENT CHARACTER
+                codePoint = 0xFFFD;
+            }
+            StringBuilder buf = new StringBuilder(12);
+            if (codePoint < 0x800) {
+                appendByte(buf, 0xC0 | (codePoint >> 6));
+            } else if (codePoint < 0x10000) {
+                appendByte(buf, 0xE0 | (codePoint >> 12));
+                appendByte(buf, 0x80 | ((codePoint >> 6) & 0x3F));
+            } else {
+                appendByte(buf, 0xF0 | (codePoint >> 18));
+                appendByte(buf, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendByte(buf, 0x80 | ((codePoint >> 6) & 0x3F));
+            }
+            appendByte(buf, 0x80 | (codePoint & 0x3F));
+            return buf.toString();
+        }
+
+        private static void appendByte(StringBuilder buf, int b) {
+            buf.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+    }
+}
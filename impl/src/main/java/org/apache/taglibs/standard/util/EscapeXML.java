@@ -52,6 +52,10 @@ public class EscapeXML {
         ESCAPES['"'] = "&#034;";
     }
 
+    private static boolean needsEscape(char c) {
+        return c < ESCAPES.length && ESCAPES[c] != null;
+    }
+
     private static String getEscape(char c) {
         if (c < ESCAPES.length) {
             return ESCAPES[c];
@@ -60,6 +64,28 @@ public class EscapeXML {
         }
     }
 
+    /**
+     * Returns the index of the next character that needs escaping.
+     *
+     * @param src  the string to scan
+     * @param from the index to start from
+     * @param end  the index to stop at
+     * @return the index of the next escapable character, or end if there is none
+     */
+    private static int nextEscape(String src, int from, int end) {
+        while (from < end && !needsEscape(src.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int nextEscape(char[] src, int from, int end) {
+        while (from < end && !needsEscape(src[from])) {
+            from++;
+        }
+        return from;
+    }
+
     /**
      * Escape a string.
      *
@@ -67,11 +93,17 @@ public class EscapeXML {
      * @return the escaped string
      */
     public static String escape(String src) {
-        // first pass to determine the length of the buffer so we only allocate once
-        int length = 0;
-        for (int i = 0; i < src.length(); i++) {
-            char c = src.charAt(i);
-            String escape = getEscape(c);
+        // skip copy if no escaping is needed
+        int end = src.length();
+        int first = nextEscape(src, 0, end);
+        if (first == end) {
+            return src;
+        }
+
+        // determine the length of the buffer so we only allocate once
+        int length = first;
+        for (int i = first; i < end; i++) {
+            String escape = getEscape(src.charAt(i));
             if (escape != null) {
                 length += escape.length();
             } else {
@@ -79,27 +111,27 @@ public class EscapeXML {
             }
         }
 
-        // skip copy if no escaping is needed
-        if (length == src.length()) {
-            return src;
-        }
-
-        // second pass to build the escaped string
+        // copy the clean prefix and build the rest of the escaped string
         StringBuilder buf = new StringBuilder(length);
-        for (int i = 0; i < src.length(); i++) {
-            char c = src.charAt(i);
-            String escape = getEscape(c);
-            if (escape != null) {
-                buf.append(escape);
-            } else {
-                buf.append(c);
+        buf.append(src, 0, first);
+        int from = first;
+        while (from < end) {
+            int to = nextEscape(src, from, end);
+            if (to != from) {
+                buf.append(src, from, to);
+            }
+            if (to == end) {
+                break;
             }
+            buf.append(ESCAPES[src.charAt(to)]);
+            from = to + 1;
         }
         return buf.toString();
     }
 
     /**
      * Emit the supplied object to the specified writer, escaping characters if needed.
+     * {@link SafeMarkup} is always written as-is.
      *
      * @param src       the object to write
      * @param escapeXml if true, escape unsafe characters before writing
@@ -107,7 +139,9 @@ public class EscapeXML {
      * @throws IOException if there was a problem emitting the content
      */
     public static void emit(Object src, boolean escapeXml, JspWriter out) throws IOException {
-        if (src instanceof Reader) {
+        if (src instanceof SafeMarkup) {
+            out.write(src.toString());
+        } else if (src instanceof Reader) {
             emit((Reader) src, escapeXml, out);
         } else {
             emit(String.valueOf(src), escapeXml, out);
@@ -140,18 +174,16 @@ public class EscapeXML {
     public static void emit(String src, JspWriter out) throws IOException {
         int end = src.length();
         int from = 0;
-        for (int to = from; to < end; to++) {
-            String escape = getEscape(src.charAt(to));
-            if (escape != null) {
-                if (to != from) {
-                    out.write(src, from, to - from);
-                }
-                out.write(escape);
-                from = to + 1;
+        while (from < end) {
+            int to = nextEscape(src, from, end);
+            if (to != from) {
+                out.write(src, from, to - from);
             }
-        }
-        if (from != end) {
-            out.write(src, from, end - from);
+            if (to == end) {
+                break;
+            }
+            out.write(ESCAPES[src.charAt(to)]);
+            from = to + 1;
         }
     }
 
@@ -164,19 +196,37 @@ public class EscapeXML {
      * @throws IOException if there was a problem emitting the content
      */
     public static void emit(Reader src, boolean escapeXml, JspWriter out) throws IOException {
+        CharBufferPool pool = CharBufferPool.getInstance();
+        char[] buffer = pool.acquire();
+        try {
+            int chunkSize = chunkSize(out, buffer.length);
+            int count;
+            while ((count = src.read(buffer, 0, chunkSize)) > 0) {
+                if (escapeXml) {
+                    emit(buffer, 0, count, out);
+                } else {
+                    out.write(buffer, 0, count);
+                }
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Returns how many characters to read at a time when copying into a writer.
+     * Reads are matched to the writer's buffer so each one fills it at most once.
+     *
+     * @param out the JspWriter being written to
+     * @param max the maximum number of characters that can be read
+     * @return the number of characters to read
+     */
+    static int chunkSize(JspWriter out, int max) {
         int bufferSize = out.getBufferSize();
-        if (bufferSize == 0) {
+        if (bufferSize <= 0) {
             bufferSize = 4096;
         }
-        char[] buffer = new char[bufferSize];
-        int count;
-        while ((count = src.read(buffer)) > 0) {
-            if (escapeXml) {
-                emit(buffer, 0, count, out);
-            } else {
-                out.write(buffer, 0, count);
-            }
-        }
+        return Math.min(bufferSize, max);
     }
 
     /**
@@ -190,18 +240,16 @@ public class EscapeXML {
      */
     public static void emit(char[] buffer, int from, int count, JspWriter out) throws IOException {
         int end = from + count;
-        for (int to = from; to < end; to++) {
-            String escape = getEscape(buffer[to]);
-            if (escape != null) {
-                if (to != from) {
-                    out.write(buffer, from, to - from);
-                }
-                out.write(escape);
-                from = to + 1;
+        while (from < end) {
+            int to = nextEscape(buffer, from, end);
+            if (to != from) {
+                out.write(buffer, from, to - from);
             }
-        }
-        if (from != end) {
-            out.write(buffer, from, end - from);
+            if (to == end) {
+                break;
+            }
+            out.write(ESCAPES[buffer[to]]);
+            from = to + 1;
         }
     }
 }
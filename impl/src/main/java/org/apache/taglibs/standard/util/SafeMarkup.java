@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.io.Serializable;
+
+/**
+ * Text that is already safe to include in XML or HTML output.
+ * <p>{@link EscapeXML#emit(Object, boolean, jakarta.servlet.jsp.JspWriter)}
+ * and <code>fn:escapeMarkup</code> write instances of this class as-is instead
+ * of escaping them again. Applications can use it to wrap fragments that
+ * were escaped upstream, for example cached HTML.</p>
+ * <p>{@link #escape(String)} returns the escaped form of a String and
+ * remembers it if it is short, so that labels and other short text
+ * rendered over and over are only scanned once.</p>
+ */
+public final class SafeMarkup implements CharSequence, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int CACHE_SIZE = 1000;
+
+    // longer text is escaped each time so that request data can not fill the cache with large strings
+    private static final int MAX_CACHED_LENGTH = 128;
+    private static final ConcurrentCache<String, SafeMarkup> ESCAPED = new ConcurrentCache<>(CACHE_SIZE);
+
+    private final String markup;
+
+    private SafeMarkup(String markup) {
+        this.markup = markup;
+    }
+
+    /**
+     * Marks text as safe markup. The caller is responsible for making sure
+     * the text contains no unintended markup.
+     *
+     * @param markup the text to wrap; must not be null
+     * @return the safe markup
+     */
+    public static SafeMarkup of(CharSequence markup) {
+        if (markup instanceof SafeMarkup) {
+            return (SafeMarkup) markup;
+        }
+        return new SafeMarkup(markup.toString());
+    }
+
+    /**
+     * Escapes a String, reusing the result of previous calls for the same text
+     * if it is no more than 128 characters long.
+     *
+     * @param text the text to escape; must not be null
+     * @return the escaped text
+     */
+    public static SafeMarkup escape(String text) {
+        if (text.length() > MAX_CACHED_LENGTH) {
+            return new SafeMarkup(EscapeXML.escape(text));
+        }
+        SafeMarkup result = ESCAPED.get(text);
+        if (result == null) {
+            result = new SafeMarkup(EscapeXML.escape(text));
+            ESCAPED.put(text, result);
+        }
+        return result;
+    }
+
+    public int length() {
+        return markup.length();
+    }
+
+    public char charAt(int index) {
+        return markup.charAt(index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return new SafeMarkup(markup.substring(start, end));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SafeMarkup && markup.equals(((SafeMarkup) o).markup);
+    }
+
+    @Override
+    public int hashCode() {
+        return markup.hashCode();
+    }
+
+    /**
+     * Returns the markup; no copy is made.
+     *
+     * @return the markup
+     */
+    @Override
+    public String toString() {
+        return markup;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.taglibs.standard.util;
 
+import java.nio.charset.Charset;
 import java.util.BitSet;
 
 /**
@@ -51,6 +52,23 @@ public class UrlUtil {
         VALID_SCHEME_CHARS.set('-');
     }
 
+    /**
+     * Characters left as they are by {@link #encode(String, Charset)}.
+     */
+    private static final BitSet UNRESERVED_CHARS;
+    static {
+        UNRESERVED_CHARS = new BitSet(128);
+        UNRESERVED_CHARS.set('A', 'Z' + 1);
+        UNRESERVED_CHARS.set('a', 'z' + 1);
+        UNRESERVED_CHARS.set('0', '9' + 1);
+        UNRESERVED_CHARS.set('.');
+        UNRESERVED_CHARS.set('-');
+        UNRESERVED_CHARS.set('*');
+        UNRESERVED_CHARS.set('_');
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
     /**
      * Determine if a URL is absolute by JSTL's definition.
      */
@@ -92,4 +110,48 @@ public class UrlUtil {
         }
         throw new IllegalArgumentException("No scheme found: " + url);
     }
+
+    /**
+     * Encodes a string in <code>application/x-www-form-urlencoded</code>
+     * format, giving the same result as <code>URLEncoder.encode</code>.
+     * The charset is passed already resolved, and a string that needs no
+     * encoding is returned as it is.
+     *
+     * @param s       the string to encode
+     * @param charset the charset to encode characters with
+     * @return the encoded string
+     */
+    public static String encode(String s, Charset charset) {
+        int length = s.length();
+        int i = 0;
+        while (i < length && UNRESERVED_CHARS.get(s.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return s;
+        }
+
+        StringBuilder out = new StringBuilder(length + 16);
+        out.append(s, 0, i);
+        while (i < length) {
+            char c = s.charAt(i);
+            if (UNRESERVED_CHARS.get(c)) {
+                out.append(c);
+                i++;
+            } else if (c == ' ') {
+                out.append('+');
+                i++;
+            } else {
+                // encode the whole run at once so surrogate pairs stay together
+                int start = i;
+                do {
+                    i++;
+                } while (i < length && !UNRESERVED_CHARS.get(s.charAt(i)) && s.charAt(i) != ' ');
+                for (byte b : s.substring(start, i).getBytes(charset)) {
+                    out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+            }
+        }
+        return out.toString();
+    }
 }
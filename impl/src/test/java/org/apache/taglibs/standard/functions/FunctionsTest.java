@@ -22,10 +22,12 @@ import java.util.Collections;
 import jakarta.servlet.jsp.JspTagException;
 
 import org.apache.taglibs.standard.resources.Resources;
+import org.apache.taglibs.standard.util.SafeMarkup;
 import org.junit.Assert;
 import org.junit.Test;
 
 import static org.apache.taglibs.standard.functions.Functions.endsWith;
+import static org.apache.taglibs.standard.functions.Functions.escapeMarkup;
 import static org.apache.taglibs.standard.functions.Functions.escapeXml;
 import static org.apache.taglibs.standard.functions.Functions.join;
 import static org.apache.taglibs.standard.functions.Functions.length;
@@ -134,4 +136,12 @@ public class FunctionsTest {
         Assert.assertEquals("&lt;Hello msg=&#039;world&#039;/&gt;", escapeXml("<Hello msg='world'/>"));
         Assert.assertEquals("cats &amp; dogs", escapeXml("cats & dogs"));
     }
+
+    @Test
+    public void testEscapeMarkup() {
+        Assert.assertEquals("", escapeMarkup(null));
+        Assert.assertEquals("1234", escapeMarkup(1234));
+        Assert.assertEquals("cats &amp; dogs", escapeMarkup(new StringBuilder("cats & dogs")));
+        Assert.assertEquals("<b>cats &amp; dogs</b>", escapeMarkup(SafeMarkup.of("<b>cats &amp; dogs</b>")));
+    }
 }
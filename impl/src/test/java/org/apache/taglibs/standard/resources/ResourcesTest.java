@@ -16,9 +16,16 @@
  */
 package org.apache.taglibs.standard.resources;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 public class ResourcesTest {
 
@@ -37,4 +44,28 @@ public class ResourcesTest {
         assertEquals("test argument one 2", Resources.getMessage("TEST_MULTIPLE_ARGUMENT", "one", 2));
     }
 
+    @Test
+    public void testParamMessagesAreDistinct() {
+        assertTrue(Resources.getMessage("PARAM_OUTSIDE_PARENT").contains("&lt;import&gt;"));
+        assertTrue(Resources.getMessage("SQL_PARAM_OUTSIDE_PARENT").contains("&lt;dateParam&gt;"));
+    }
+
+    @Test
+    public void testNoDuplicateKeys() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                Resources.class.getResourceAsStream("Resources.properties"), "ISO-8859-1"));
+        try {
+            Set<String> keys = new HashSet<String>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                int eq = line.indexOf('=');
+                if (eq > 0 && !line.startsWith("#") && !Character.isWhitespace(line.charAt(0))) {
+                    String key = line.substring(0, eq);
+                    assertTrue("Duplicate key " + key, keys.add(key));
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
 }
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class CachingFetcherTest {
+    private static final Map<String, String> NONE = Collections.emptyMap();
+
+    private StubFetcher stub;
+    private CachingFetcher cache;
+
+    @Before
+    public void setup() {
+        stub = new StubFetcher();
+        cache = new CachingFetcher(stub, 2, 16);
+    }
+
+    @Test
+    public void testFetcherWithoutDeadlineSupport() throws IOException {
+        // the stub only implements fetch(url, headers)
+        stub.reply(200, "Hello");
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, System.currentTimeMillis() + 1000)));
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE)));
+    }
+
+    @Test
+    public void testUnderlyingFetcherIsAvailable() {
+        Assert.assertSame(stub, cache.getFetcher());
+    }
+
+    @Test
+    public void testFreshResponseIsServedFromCache() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=60");
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals(1, stub.requests.size());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNoStoreIsNotCached() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "no-store, max-age=60");
+        read(cache.fetch("http://a/", NONE, 0));
+        read(cache.fetch("http://a/", NONE, 0));
+        Assert.assertEquals(2, stub.requests.size());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResponseWithoutFreshnessOrValidatorIsNotCached() throws IOException {
+        stub.reply(200, "Hello");
+        read(cache.fetch("http://a/", NONE, 0));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testStaleResponseIsRevalidated() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0", "ETag", "\"v1\"");
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, 0)));
+
+        stub.reply(304, "");
+        ImportResponse response = cache.fetch("http://a/", NONE, 0);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("Hello", read(response));
+        Assert.assertEquals("\"v1\"", stub.requests.get(1).get("If-None-Match"));
+        Assert.assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void testChangedResponseReplacesEntry() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0", "Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT");
+        read(cache.fetch("http://a/", NONE, 0));
+
+        stub.reply(200, "Bye", "Cache-Control", "max-age=60");
+        Assert.assertEquals("Bye", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", stub.requests.get(1).get("If-Modified-Since"));
+        Assert.assertEquals("Bye", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals(2, stub.requests.size());
+    }
+
+    @Test
+    public void testServerErrorServesStaleCopy() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0", "ETag", "\"v1\"");
+        read(cache.fetch("http://a/", NONE, 0));
+
+        stub.reply(503, "Busy");
+        ImportResponse response = cache.fetch("http://a/", NONE, 0);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("Hello", read(response));
+        Assert.assertEquals(1, cache.size());
+
+        stub.reply(304, "");
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals("\"v1\"", stub.requests.get(2).get("If-None-Match"));
+    }
+
+    @Test
+    public void testFailedRevalidationServesStaleCopy() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0", "ETag", "\"v1\"");
+        read(cache.fetch("http://a/", NONE, 0));
+
+        stub.fail(new IOException("Connection refused"));
+        Assert.assertEquals("Hello", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMustRevalidateIsNotServedStale() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0, must-revalidate", "ETag", "\"v1\"");
+        read(cache.fetch("http://a/", NONE, 0));
+
+        stub.fail(new IOException("Connection refused"));
+        cache.fetch("http://a/", NONE, 0);
+    }
+
+    @Test
+    public void testClientErrorRemovesEntry() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=0", "ETag", "\"v1\"");
+        read(cache.fetch("http://a/", NONE, 0));
+
+        stub.reply(404, "Gone");
+        ImportResponse response = cache.fetch("http://a/", NONE, 0);
+        Assert.assertEquals(404, response.getStatus());
+        Assert.assertEquals("Gone", read(response));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=60");
+        read(cache.fetch("http://a/", NONE, 0));
+        read(cache.fetch("http://b/", NONE, 0));
+        read(cache.fetch("http://a/", NONE, 0));
+        read(cache.fetch("http://c/", NONE, 0));
+        Assert.assertEquals(2, cache.size());
+        read(cache.fetch("http://a/", NONE, 0));
+        Assert.assertEquals(3, stub.requests.size());
+        read(cache.fetch("http://b/", NONE, 0));
+        Assert.assertEquals(4, stub.requests.size());
+    }
+
+    @Test
+    public void testLargeResponseIsPassedThrough() throws IOException {
+        stub.reply(200, "0123456789abcdefghij", "Cache-Control", "max-age=60");
+        Assert.assertEquals("0123456789abcdefghij", read(cache.fetch("http://a/", NONE, 0)));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRequestHeadersBypassCache() throws IOException {
+        stub.reply(200, "Hello", "Cache-Control", "max-age=60");
+        read(cache.fetch("http://a/", Collections.singletonMap("Accept", "text/html"), 0));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiry() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Date", "Mon, 01 Jan 2024 00:00:00 GMT");
+        headers.put("Expires", "Mon, 01 Jan 2024 00:01:00 GMT");
+        Assert.assertEquals(1000 + 60000, CachingFetcher.expiry(headers, 1000));
+        headers.put("Cache-Control", "public, s-maxage=5, max-age=10");
+        Assert.assertEquals(1000 + 5000, CachingFetcher.expiry(headers, 1000));
+        headers.put("Cache-Control", "no-cache");
+        Assert.assertEquals(1000, CachingFetcher.expiry(headers, 1000));
+        headers.remove("Cache-Control");
+        headers.put("Expires", "0");
+        Assert.assertEquals(1000, CachingFetcher.expiry(headers, 1000));
+    }
+
+    private static String read(ImportResponse response) throws IOException {
+        try {
+            InputStream in = response.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+            return out.toString("ISO-8859-1");
+        } finally {
+            response.close();
+        }
+    }
+
+    private static class StubFetcher implements ImportFetcher {
+        private final List<Map<String, String>> requests = new ArrayList<>();
+        private int status;
+        private byte[] body;
+        private Map<String, String> headers;
+        private IOException failure;
+
+        void fail(IOException failure) {
+            this.failure = failure;
+        }
+
+        void reply(int status, String body, String... headers) {
+            this.failure = null;
+            this.status = status;
+            this.body = body.getBytes();
+            this.headers = new HashMap<>();
+            for (int i = 0; i < headers.length; i += 2) {
+                this.headers.put(headers[i], headers[i + 1]);
+            }
+        }
+
+        public ImportResponse fetch(String url, Map<String, String> requestHeaders) throws IOException {
+            requests.add(requestHeaders);
+            if (failure != null) {
+                throw failure;
+            }
+            final int status = this.status;
+            final byte[] body = this.body;
+            final Map<String, String> headers = this.headers;
+            return new ImportResponse() {
+                public int getStatus() {
+                    return status;
+                }
+
+                public String getHeader(String name) {
+                    return headers.get(name);
+                }
+
+                public String getContentType() {
+                    return "text/plain";
+                }
+
+                public long getContentLength() {
+                    return -1;
+                }
+
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.taglibs.standard.util.CharBufferPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class DecodingOutputStreamTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private StringWriter writer = new StringWriter();
+
+    @Test
+    public void testSingleBytes() throws IOException {
+        DecodingOutputStream os = new DecodingOutputStream(writer, UTF8);
+        for (byte b : "caf\u00e9".getBytes(UTF8)) {
+            os.write(b);
+        }
+        os.finish();
+        Assert.assertEquals("caf\u00e9", writer.toString());
+    }
+
+    @Test
+    public void testSequenceSplitBetweenWrites() throws IOException {
+        DecodingOutputStream os = new DecodingOutputStream(writer, UTF8);
+        byte[] bytes = "\u20ac\u20ac".getBytes(UTF8);
+        os.write(bytes, 0, 2);
+        os.flush();
+        Assert.assertEquals("", writer.toString());
+        os.write(bytes, 2, 4);
+        os.finish();
+        Assert.assertEquals("\u20ac\u20ac", writer.toString());
+    }
+
+    @Test
+    public void testLargerThanBuffer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("\u00e9t\u00e9 ");
+        }
+        String s = sb.toString();
+        DecodingOutputStream os = new DecodingOutputStream(writer, UTF8);
+        os.write(s.getBytes(UTF8));
+        os.finish();
+        Assert.assertEquals(s, writer.toString());
+    }
+
+    @Test
+    public void testMalformedInputIsReplaced() throws IOException {
+        byte[] bytes = {'a', (byte) 0xC3};
+        DecodingOutputStream os = new DecodingOutputStream(writer, UTF8);
+        os.write(bytes);
+        os.finish();
+        Assert.assertEquals(new String(bytes, UTF8), writer.toString());
+    }
+
+    @Test
+    public void testBufferIsReturnedWhenWriterFails() {
+        final char[][] used = new char[1][];
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                used[0] = cbuf;
+                throw new IOException("closed");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DecodingOutputStream os = new DecodingOutputStream(failing, UTF8);
+        try {
+            os.write('a');
+            os.finish();
+            Assert.fail("expected the failure to be reported");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertTrue(isPooled(used[0]));
+    }
+
+    @Test
+    public void testDiscardReturnsBuffer() throws IOException {
+        final char[][] used = new char[1][];
+        Writer recording = new StringWriter() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                used[0] = cbuf;
+                super.write(cbuf, off, len);
+            }
+        };
+        DecodingOutputStream os = new DecodingOutputStream(recording, UTF8);
+        os.write('a');
+        os.flush();
+        os.discard();
+        Assert.assertTrue(isPooled(used[0]));
+        os.discard();
+    }
+
+    // drains the pool looking for the buffer, then puts everything back
+    private static boolean isPooled(char[] buffer) {
+        CharBufferPool pool = CharBufferPool.getInstance();
+        List<char[]> taken = new ArrayList<>();
+        boolean found = false;
+        for (int i = 0; i < 256 && !found; i++) {
+            char[] b = pool.acquire();
+            taken.add(b);
+            found = b == buffer;
+        }
+        for (char[] b : taken) {
+            pool.release(b);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class FragmentCacheTest {
+
+    @Test
+    public void testGet() {
+        FragmentCache cache = new FragmentCache(10);
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", "Hello", 60000);
+        Assert.assertEquals("Hello", cache.get("a"));
+    }
+
+    @Test
+    public void testExpiredEntryIsRemoved() {
+        FragmentCache cache = new FragmentCache(10);
+        cache.put("a", "Hello", -1);
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        FragmentCache cache = new FragmentCache(2);
+        cache.put("a", "A", 60000);
+        cache.put("b", "B", 60000);
+        cache.get("a");
+        cache.put("c", "C", 60000);
+        Assert.assertEquals("A", cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void testConcurrentMissWaitsForRendering() throws Exception {
+        final FragmentCache cache = new FragmentCache(10);
+        Assert.assertNull(cache.getOrReserve("a"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> waiting = executor.submit(reserve(cache, "a"));
+            try {
+                waiting.get(100, TimeUnit.MILLISECONDS);
+                Assert.fail("expected the second request to wait");
+            } catch (TimeoutException e) {
+                // expected
+            }
+            cache.put("a", "Hello", 60000);
+            Assert.assertEquals("Hello", waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAbandonedRenderingIsTakenOver() throws Exception {
+        final FragmentCache cache = new FragmentCache(10);
+        Assert.assertNull(cache.getOrReserve("a"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> waiting = executor.submit(reserve(cache, "a"));
+            cache.abandon("a");
+            Assert.assertNull(waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<String> reserve(final FragmentCache cache, final String key) {
+        return new Callable<String>() {
+            public String call() throws InterruptedException {
+                return cache.getOrReserve(key);
+            }
+        };
+    }
+}
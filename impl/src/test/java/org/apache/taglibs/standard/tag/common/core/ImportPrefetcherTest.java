@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletRequestEvent;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class ImportPrefetcherTest {
+
+    private final Map<String, Object> contextAttributes = new HashMap<>();
+    private final Map<String, Object> requestAttributes = new HashMap<>();
+    private ServletContext servletContext;
+    private ServletRequest request;
+
+    @Before
+    public void setup() {
+        servletContext = EasyMock.createNiceMock(ServletContext.class);
+        EasyMock.expect(servletContext.getAttribute(EasyMock.<String>anyObject()))
+                .andStubAnswer(get(contextAttributes));
+        servletContext.setAttribute(EasyMock.<String>anyObject(), EasyMock.anyObject());
+        EasyMock.expectLastCall().andStubAnswer(put(contextAttributes));
+        servletContext.removeAttribute(EasyMock.<String>anyObject());
+        EasyMock.expectLastCall().andStubAnswer(remove(contextAttributes));
+
+        request = EasyMock.createNiceMock(ServletRequest.class);
+        EasyMock.expect(request.getAttribute(EasyMock.<String>anyObject()))
+                .andStubAnswer(get(requestAttributes));
+        request.setAttribute(EasyMock.<String>anyObject(), EasyMock.anyObject());
+        EasyMock.expectLastCall().andStubAnswer(put(requestAttributes));
+        request.removeAttribute(EasyMock.<String>anyObject());
+        EasyMock.expectLastCall().andStubAnswer(remove(requestAttributes));
+
+        EasyMock.replay(servletContext, request);
+    }
+
+    @After
+    public void teardown() {
+        ImportPrefetcher.shutdown(servletContext);
+    }
+
+    @Test
+    public void testFetchesRunInParallel() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            ImportPrefetcher.start(servletContext, request, "url" + i, new Slow("content" + i), 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("content" + i, ImportPrefetcher.take(request, "url" + i));
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        Assert.assertTrue("took " + elapsed + "ms", elapsed < 4 * Slow.DELAY);
+    }
+
+    @Test
+    public void testFetchIsTakenOnce() throws Exception {
+        Assert.assertNull(ImportPrefetcher.take(request, "url"));
+        ImportPrefetcher.start(servletContext, request, "url", new Slow("Hello"), 0);
+        Assert.assertEquals("Hello", ImportPrefetcher.take(request, "url"));
+        Assert.assertNull(ImportPrefetcher.take(request, "url"));
+    }
+
+    @Test
+    public void testFailureIsReportedWhenTaken() throws Exception {
+        final IOException failure = new IOException("unreachable");
+        ImportPrefetcher.start(servletContext, request, "url", new Callable<String>() {
+            public String call() throws IOException {
+                throw failure;
+            }
+        }, 0);
+        try {
+            ImportPrefetcher.take(request, "url");
+            Assert.fail("expected the failure to be reported");
+        } catch (IOException e) {
+            Assert.assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void testPendingFetchIsReused() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<String> fetch = new Callable<String>() {
+            public String call() throws InterruptedException {
+                calls.incrementAndGet();
+                Thread.sleep(Slow.DELAY);
+                return "Hello";
+            }
+        };
+        ImportPrefetcher.start(servletContext, request, "url", fetch, 0);
+        ImportPrefetcher.start(servletContext, request, "url", fetch, 0);
+        Assert.assertEquals("Hello", ImportPrefetcher.take(request, "url"));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testFetchesLeftAreCancelledWhenRequestEnds() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        ImportPrefetcher.start(servletContext, request, "url", new Callable<String>() {
+            public String call() {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        }, 0);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        new ImportPrefetchListener().requestDestroyed(new ServletRequestEvent(servletContext, request));
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(requestAttributes.isEmpty());
+        Assert.assertNull(ImportPrefetcher.take(request, "url"));
+    }
+
+    @Test
+    public void testShutdownStopsThreads() {
+        ImportPrefetcher.start(servletContext, request, "url", new Slow("Hello"), 0);
+        Assert.assertEquals(1, contextAttributes.size());
+        ExecutorService executor = (ExecutorService) contextAttributes.values().iterator().next();
+        ImportPrefetcher.shutdown(servletContext);
+        Assert.assertTrue(executor.isShutdown());
+        Assert.assertTrue(contextAttributes.isEmpty());
+    }
+
+    private static IAnswer<Object> get(final Map<String, Object> attributes) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                return attributes.get(EasyMock.getCurrentArguments()[0]);
+            }
+        };
+    }
+
+    private static IAnswer<Object> put(final Map<String, Object> attributes) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+                return null;
+            }
+        };
+    }
+
+    private static IAnswer<Object> remove(final Map<String, Object> attributes) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                attributes.remove(EasyMock.getCurrentArguments()[0]);
+                return null;
+            }
+        };
+    }
+
+    private static class Slow implements Callable<String> {
+        static final long DELAY = 200;
+
+        private final String content;
+
+        Slow(String content) {
+            this.content = content;
+        }
+
+        public String call() throws InterruptedException {
+            Thread.sleep(DELAY);
+            return content;
+        }
+    }
+}
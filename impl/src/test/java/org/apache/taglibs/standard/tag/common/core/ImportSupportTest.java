@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspTagException;
+import jakarta.servlet.jsp.PageContext;
+
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ */
+public class ImportSupportTest {
+    private PageContext pageContext;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ServletContext servletContext;
+    private RequestDispatcher rd;
+
+    @Before
+    public void setup() {
+        pageContext = createNiceMock(PageContext.class);
+        request = createNiceMock(HttpServletRequest.class);
+        response = createNiceMock(HttpServletResponse.class);
+        servletContext = createNiceMock(ServletContext.class);
+        rd = createMock(RequestDispatcher.class);
+
+        expect(pageContext.getRequest()).andStubReturn(request);
+        expect(pageContext.getResponse()).andStubReturn(response);
+        expect(pageContext.getServletContext()).andStubReturn(servletContext);
+        expect(servletContext.getRequestDispatcher("/menu.jsp")).andStubReturn(rd);
+    }
+
+    @Test
+    public void testFetchStringWithLength() throws JspException {
+        Stub stub = new Stub(200, "text/plain; charset=UTF-8", "caf\u00e9".getBytes(StandardCharsets.UTF_8), true);
+        Assert.assertEquals("caf\u00e9", ImportSupport.fetchString(stub, "http://a/", null, 0, 0));
+        Assert.assertTrue(stub.closed);
+    }
+
+    @Test
+    public void testFetchStringWithoutLength() throws JspException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String content = new String(chars);
+        Stub stub = new Stub(200, null, content.getBytes(StandardCharsets.ISO_8859_1), false);
+        Assert.assertEquals(content, ImportSupport.fetchString(stub, "http://a/", null, 0, 0));
+    }
+
+    @Test
+    public void testFetchStringWithWrongLength() throws JspException {
+        Stub stub = new Stub(200, null, "Hello".getBytes(StandardCharsets.ISO_8859_1), true) {
+            @Override
+            public long getContentLength() {
+                return 2;
+            }
+        };
+        Assert.assertEquals("Hello", ImportSupport.fetchString(stub, "http://a/", null, 0, 0));
+    }
+
+    @Test
+    public void testFetchStringDoesNotTrustLength() throws JspException {
+        Stub stub = new Stub(200, null, "Hello".getBytes(StandardCharsets.ISO_8859_1), true) {
+            @Override
+            public long getContentLength() {
+                return Integer.MAX_VALUE - 16;
+            }
+        };
+        Assert.assertEquals("Hello", ImportSupport.fetchString(stub, "http://a/", null, 0, 0));
+    }
+
+    @Test
+    public void testFetchStringLongerThanInitialBuffer() throws JspException {
+        byte[] content = new byte[200000];
+        Arrays.fill(content, (byte) 'x');
+        Assert.assertEquals(new String(content, StandardCharsets.ISO_8859_1),
+                ImportSupport.fetchString(new Stub(200, null, content, true), "http://a/", null, 0, 0));
+    }
+
+    @Test
+    public void testCharEncodingOverridesContentType() throws JspException {
+        Stub stub = new Stub(200, "text/plain; charset=UTF-8", "caf\u00e9".getBytes(StandardCharsets.ISO_8859_1), true);
+        Assert.assertEquals("caf\u00e9", ImportSupport.fetchString(stub, "http://a/", "ISO-8859-1", 0, 0));
+    }
+
+    @Test
+    public void testUnknownCharsetFallsBack() throws JspException {
+        Stub stub = new Stub(200, "text/plain; charset=bogus", "caf\u00e9".getBytes(StandardCharsets.ISO_8859_1), true);
+        Assert.assertEquals("caf\u00e9", ImportSupport.fetchString(stub, "http://a/", null, 0, 0));
+    }
+
+    @Test
+    public void testMaxSize() throws JspException {
+        byte[] content = "0123456789".getBytes(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals("0123456789", ImportSupport.fetchString(new Stub(200, null, content, false), "http://a/", null, 10, 0));
+        try {
+            ImportSupport.fetchString(new Stub(200, null, content, false), "http://a/", null, 9, 0);
+            Assert.fail("expected the import to be refused");
+        } catch (JspTagException e) {
+            // expected
+        }
+        Stub stub = new Stub(200, null, content, true);
+        try {
+            ImportSupport.fetchString(stub, "http://a/", null, 9, 0);
+            Assert.fail("expected the import to be refused");
+        } catch (JspTagException e) {
+            Assert.assertTrue(stub.closed);
+        }
+    }
+
+    @Test
+    public void testErrorStatus() throws JspException {
+        Stub stub = new Stub(404, null, new byte[0], true);
+        try {
+            ImportSupport.fetchString(stub, "http://a/", null, 0, 0);
+            Assert.fail("expected the import to fail");
+        } catch (JspTagException e) {
+            Assert.assertEquals("404 http://a/", e.getMessage());
+            Assert.assertTrue(stub.closed);
+        }
+    }
+
+    @Test
+    public void testCachedRelativeImportSkipsDispatch() throws Exception {
+        FragmentCache cache = new FragmentCache(10);
+        expect(servletContext.getAttribute(ImportSupport.FRAGMENT_CACHE_ATTRIBUTE)).andStubReturn(cache);
+        expect(request.getLocale()).andStubReturn(Locale.US);
+        rd.include(anyObject(HttpServletRequest.class), anyObject(ServletResponse.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() throws IOException {
+                ((ServletResponse) getCurrentArguments()[1]).getWriter().print("Menu");
+                return null;
+            }
+        }).once();
+        pageContext.setAttribute("menu", "Menu", PageContext.PAGE_SCOPE);
+        expectLastCall().times(2);
+        replay(pageContext, request, response, servletContext, rd);
+
+        ImportSupport tag = relativeImport();
+        tag.cacheTtl = 60;
+        tag.cacheVary = "locale";
+        for (int i = 0; i < 2; i++) {
+            tag.doStartTag();
+            tag.doEndTag();
+            tag.doFinally();
+        }
+        verify(pageContext, rd);
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRelativeImportDecodesStream() throws Exception {
+        final byte[] content = "caf\u00e9 \u20ac".getBytes(StandardCharsets.UTF_8);
+        rd.include(anyObject(HttpServletRequest.class), anyObject(ServletResponse.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() throws IOException {
+                ServletOutputStream os = ((ServletResponse) getCurrentArguments()[1]).getOutputStream();
+                // split in the middle of the euro sign
+                os.write(content, 0, content.length - 1);
+                os.write(content[content.length - 1]);
+                return null;
+            }
+        });
+        pageContext.setAttribute("menu", "caf\u00e9 \u20ac", PageContext.PAGE_SCOPE);
+        replay(pageContext, request, response, servletContext, rd);
+
+        ImportSupport tag = relativeImport();
+        tag.charEncoding = "UTF-8";
+        tag.doStartTag();
+        tag.doEndTag();
+        tag.doFinally();
+        verify(pageContext, rd);
+    }
+
+    @Test(expected = JspTagException.class)
+    public void testPrefetchCanNotBeExported() throws JspException {
+        replay(pageContext, request, response, servletContext, rd);
+        ImportSupport tag = new ImportSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.url = "http://example.com/feed.xml";
+        tag.prefetch = true;
+        tag.setVar("feed");
+        tag.doStartTag();
+    }
+
+    @Test
+    public void testStripSession() {
+        String url = "/page.jsp?a=b";
+        Assert.assertSame(url, ImportSupport.stripSession(url));
+        Assert.assertEquals("/page.jsp?a=b", ImportSupport.stripSession("/page.jsp;jsessionid=123?a=b"));
+        Assert.assertEquals("/page.jsp;x=y", ImportSupport.stripSession("/page.jsp;jsessionid=123;x=y"));
+        Assert.assertEquals("/page.jsp", ImportSupport.stripSession("/page.jsp;jsessionid=1;jsessionid=2"));
+    }
+
+    @Test
+    public void testRelativeVarReader() throws Exception {
+        final char[] content = new char[10000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (char) ('a' + i % 26);
+        }
+        rd.include(anyObject(HttpServletRequest.class), anyObject(ServletResponse.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() throws IOException {
+                ((ServletResponse) getCurrentArguments()[1]).getWriter().write(content);
+                return null;
+            }
+        });
+        expect(servletContext.getRequestDispatcher("/feed.xml")).andStubReturn(rd);
+        final Reader[] exposed = new Reader[1];
+        pageContext.setAttribute(eq("feed"), anyObject(Reader.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                exposed[0] = (Reader) getCurrentArguments()[1];
+                return null;
+            }
+        });
+        replay(pageContext, request, response, servletContext, rd);
+
+        ImportSupport tag = new ImportSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.url = "/feed.xml";
+        tag.setVarReader("feed");
+        tag.doStartTag();
+
+        Reader reader = exposed[0];
+        Assert.assertEquals('a', reader.read());
+        Assert.assertEquals(25, reader.skip(25));
+        char[] buffer = new char[4096];
+        StringBuilder rest = new StringBuilder();
+        int n;
+        while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+            rest.append(buffer, 0, n);
+        }
+        Assert.assertEquals(new String(content, 26, content.length - 26), rest.toString());
+        tag.doEndTag();
+        tag.doFinally();
+        verify(pageContext, rd);
+    }
+
+    private ImportSupport relativeImport() {
+        ImportSupport tag = new ImportSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.url = "/menu.jsp";
+        tag.setVar("menu");
+        return tag;
+    }
+
+    private static class Stub implements ImportFetcher, ImportResponse {
+        private final int status;
+        private final String contentType;
+        private final byte[] content;
+        private final boolean knownLength;
+        private boolean closed;
+
+        Stub(int status, String contentType, byte[] content, boolean knownLength) {
+            this.status = status;
+            this.contentType = contentType;
+            this.content = content;
+            this.knownLength = knownLength;
+        }
+
+        public ImportResponse fetch(String url, Map<String, String> headers) {
+            return this;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getHeader(String name) {
+            return null;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getContentLength() {
+            return knownLength ? content.length : -1;
+        }
+
+        public InputStream getInputStream() {
+            // hand out a few bytes at a time as a network stream would
+            return new ByteArrayInputStream(content) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 3));
+                }
+            };
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.IOException;
+
+import jakarta.servlet.jsp.JspWriter;
+
+import org.apache.taglibs.standard.util.Encoder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ */
+public class OutBodyWriterTest {
+    private JspWriter out;
+
+    @Before
+    public void setup() {
+        out = createStrictMock(JspWriter.class);
+    }
+
+    @Test
+    public void testWhitespaceOnly() throws IOException {
+        replay(out);
+        OutBodyWriter writer = new OutBodyWriter(out, Encoder.XML);
+        writer.write("  \n\t ");
+        writer.write("\n");
+        writer.close();
+        verify(out);
+    }
+
+    @Test
+    public void testTrimInSingleWrite() throws IOException {
+        out.write(isA(char[].class), eq(2), eq(5));
+        replay(out);
+        OutBodyWriter writer = new OutBodyWriter(out, Encoder.XML);
+        writer.write("  Hello \n");
+        writer.close();
+        verify(out);
+    }
+
+    @Test
+    public void testWhitespaceBetweenWrites() throws IOException {
+        out.write(isA(char[].class), eq(1), eq(5));
+        out.write(" \n");
+        out.write(isA(char[].class), eq(0), eq(5));
+        replay(out);
+        OutBodyWriter writer = new OutBodyWriter(out, null);
+        writer.write("\nHello");
+        writer.write(" ");
+        writer.write("\n");
+        writer.write("World");
+        writer.write("\n ");
+        writer.close();
+        verify(out);
+    }
+
+    @Test
+    public void testEscaped() throws IOException {
+        out.write(isA(char[].class), eq(1), eq(5));
+        out.write("&amp;");
+        out.write(isA(char[].class), eq(7), eq(5));
+        replay(out);
+        OutBodyWriter writer = new OutBodyWriter(out, Encoder.XML);
+        writer.write(" cats & dogs ");
+        writer.close();
+        verify(out);
+    }
+
+    @Test
+    public void testUnescaped() throws IOException {
+        out.write(isA(char[].class), eq(0), eq(11));
+        replay(out);
+        OutBodyWriter writer = new OutBodyWriter(out, null);
+        writer.write("cats & dogs");
+        writer.close();
+        verify(out);
+    }
+}
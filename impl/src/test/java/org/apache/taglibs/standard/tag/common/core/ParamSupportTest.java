@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class ParamSupportTest {
+
+    @Test
+    public void testNoParams() {
+        String url = "/page.jsp";
+        Assert.assertSame(url, new ParamSupport.ParamManager().aggregateParams(url));
+        Assert.assertEquals("/ctx/page.jsp", new ParamSupport.ParamManager().aggregateParams("/ctx", url));
+    }
+
+    @Test
+    public void testParams() {
+        ParamSupport.ParamManager params = new ParamSupport.ParamManager();
+        params.addParameter("a", "1");
+        params.addParameter("b", null);
+        params.addParameter(null, "ignored");
+        Assert.assertEquals("/ctx/page.jsp?a=1&b=", params.aggregateParams("/ctx", "/page.jsp"));
+    }
+
+    @Test
+    public void testParamsPrecedeExistingQuery() {
+        ParamSupport.ParamManager params = new ParamSupport.ParamManager();
+        params.addParameter("a", "1");
+        Assert.assertEquals("page.jsp?a=1&x=y", params.aggregateParams("page.jsp?x=y"));
+
+        params = new ParamSupport.ParamManager();
+        params.addParameter("a", "1");
+        Assert.assertEquals("page.jsp?a=1&", params.aggregateParams("page.jsp?"));
+    }
+
+    @Test
+    public void testManyParams() {
+        ParamSupport.ParamManager params = new ParamSupport.ParamManager();
+        StringBuilder expected = new StringBuilder("p");
+        for (int i = 0; i < 10; i++) {
+            params.addParameter("n" + i, "v" + i);
+            expected.append(i == 0 ? '?' : '&').append("n").append(i).append("=v").append(i);
+        }
+        Assert.assertEquals(expected.toString(), params.aggregateParams("p"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAggregateOnlyOnce() {
+        ParamSupport.ParamManager params = new ParamSupport.ParamManager();
+        params.aggregateParams("p");
+        params.aggregateParams("p");
+    }
+}
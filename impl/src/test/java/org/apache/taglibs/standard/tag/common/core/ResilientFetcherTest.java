@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class ResilientFetcherTest {
+    private static final Map<String, String> NONE = Collections.emptyMap();
+
+    private StubFetcher stub;
+
+    @Before
+    public void setup() {
+        stub = new StubFetcher();
+    }
+
+    @Test
+    public void testCircuitOpensAfterFailures() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 50, 100, 0, 1024);
+        stub.status = 503;
+        for (int i = 0; i < 10; i++) {
+            fetcher.fetch("http://a/x", NONE, 0).close();
+        }
+        Assert.assertEquals(ResilientFetcher.State.OPEN, fetcher.getStates().get("a:-1"));
+        try {
+            fetcher.fetch("http://a/x", NONE, 0);
+            Assert.fail("expected the request to be refused");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(10, stub.requests);
+        Assert.assertEquals(1, fetcher.getRejectedCount());
+
+        // other hosts are unaffected
+        stub.status = 200;
+        Assert.assertEquals("ok", read(fetcher.fetch("http://b/x", NONE, 0)));
+
+        // a successful trial closes the circuit
+        Thread.sleep(150);
+        Assert.assertEquals(ResilientFetcher.State.HALF_OPEN, fetcher.getStates().get("a:-1"));
+        Assert.assertEquals("ok", read(fetcher.fetch("http://a/x", NONE, 0)));
+        Assert.assertEquals(ResilientFetcher.State.CLOSED, fetcher.getStates().get("a:-1"));
+    }
+
+    @Test
+    public void testFailedTrialReopensCircuit() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 100, 50, 0, 1024);
+        stub.failure = new IOException("down");
+        for (int i = 0; i < 10; i++) {
+            try {
+                fetcher.fetch("http://a/x", NONE, 0);
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertSame(stub.failure, e);
+            }
+        }
+        Thread.sleep(100);
+        try {
+            fetcher.fetch("http://a/x", NONE, 0);
+        } catch (IOException e) {
+            Assert.assertSame(stub.failure, e);
+        }
+        Assert.assertEquals(11, stub.requests);
+        Assert.assertEquals(ResilientFetcher.State.OPEN, fetcher.getStates().get("a:-1"));
+    }
+
+    @Test
+    public void testBodyStallingPastDeadlineCountsAsFailure() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/stall", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 5);
+                OutputStream out = exchange.getResponseBody();
+                out.write("He".getBytes());
+                out.flush();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            String url = "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort() + "/stall";
+            ResilientFetcher fetcher = new ResilientFetcher(new URLConnectionFetcher(), 50, 60000, 0, 1024);
+            for (int i = 0; i < 10; i++) {
+                ImportResponse response = fetcher.fetch(url, NONE, System.currentTimeMillis() + 100);
+                Assert.assertEquals(200, response.getStatus());
+                try {
+                    read(response);
+                    Assert.fail("expected the deadline to be enforced");
+                } catch (SocketTimeoutException e) {
+                    // expected
+                }
+            }
+            Assert.assertEquals(ResilientFetcher.State.OPEN, fetcher.getStates().values().iterator().next());
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTrialFailingWhileReadingReopensCircuit() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 100, 50, 0, 1024);
+        stub.status = 503;
+        for (int i = 0; i < 10; i++) {
+            fetcher.fetch("http://a/x", NONE, 0).close();
+        }
+        Thread.sleep(100);
+        stub.status = 200;
+        stub.bodyFailure = new SocketTimeoutException("Deadline exceeded");
+        ImportResponse trial = fetcher.fetch("http://a/x", NONE, 0);
+        // the trial is under way until its content has been read
+        Assert.assertEquals(ResilientFetcher.State.HALF_OPEN, fetcher.getStates().get("a:-1"));
+        try {
+            read(trial);
+            Assert.fail();
+        } catch (SocketTimeoutException e) {
+            Assert.assertSame(stub.bodyFailure, e);
+        }
+        Assert.assertEquals(ResilientFetcher.State.OPEN, fetcher.getStates().get("a:-1"));
+    }
+
+    @Test
+    public void testOccasionalFailuresDoNotOpenCircuit() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 50, 100, 0, 1024);
+        for (int i = 0; i < 40; i++) {
+            stub.status = (i % 3 == 0) ? 500 : 200;
+            fetcher.fetch("http://a/x", NONE, 0).close();
+        }
+        Assert.assertEquals(ResilientFetcher.State.CLOSED, fetcher.getStates().get("a:-1"));
+    }
+
+    @Test
+    public void testLastGoodContentIsServedOnFailure() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 0, 100, 10, 1024);
+        Assert.assertEquals("ok", read(fetcher.fetch("http://a/x", NONE, 0)));
+
+        stub.status = 502;
+        ImportResponse response = fetcher.fetch("http://a/x", NONE, 0);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("ok", read(response));
+
+        stub.failure = new IOException("down");
+        Assert.assertEquals("ok", read(fetcher.fetch("http://a/x", NONE, 0)));
+        Assert.assertEquals(2, fetcher.getStaleCount());
+
+        // nothing to fall back on for other URLs
+        try {
+            fetcher.fetch("http://a/y", NONE, 0);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertSame(stub.failure, e);
+        }
+    }
+
+    @Test
+    public void testContentNotReadToTheEndIsNotKept() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(stub, 0, 100, 10, 1024);
+        fetcher.fetch("http://a/x", NONE, 0).close();
+        stub.status = 500;
+        Assert.assertEquals(500, fetcher.fetch("http://a/x", NONE, 0).getStatus());
+    }
+
+    private static String read(ImportResponse response) throws IOException {
+        try {
+            InputStream in = response.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toString("ISO-8859-1");
+        } finally {
+            response.close();
+        }
+    }
+
+    private static class StubFetcher implements ImportFetcher {
+        private int requests;
+        private int status = 200;
+        private IOException failure;
+        private IOException bodyFailure;
+
+        public ImportResponse fetch(String url, Map<String, String> headers) throws IOException {
+            requests++;
+            if (failure != null) {
+                throw failure;
+            }
+            final int status = this.status;
+            final IOException bodyFailure = this.bodyFailure;
+            return new ImportResponse() {
+                public int getStatus() {
+                    return status;
+                }
+
+                public String getHeader(String name) {
+                    return null;
+                }
+
+                public String getContentType() {
+                    return "text/plain";
+                }
+
+                public long getContentLength() {
+                    return 2;
+                }
+
+                public InputStream getInputStream() {
+                    if (bodyFailure != null) {
+                        return new InputStream() {
+                            @Override
+                            public int read() throws IOException {
+                                throw bodyFailure;
+                            }
+                        };
+                    }
+                    return new ByteArrayInputStream("ok".getBytes());
+                }
+
+                public void close() {
+                }
+            };
+        }
+    }
+}
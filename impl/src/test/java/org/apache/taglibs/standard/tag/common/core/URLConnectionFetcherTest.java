@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class URLConnectionFetcherTest {
+    private HttpServer server;
+    private String base;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ok", new Reply(200, "Hello", 0));
+        server.createContext("/missing", new Reply(404, "Not here", 0));
+        server.createContext("/slow", new Reply(200, "Late", 2000));
+        server.start();
+        base = "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFetch() throws IOException {
+        ImportResponse response = new URLConnectionFetcher().fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+        try {
+            Assert.assertEquals(200, response.getStatus());
+            Assert.assertEquals("text/plain; charset=UTF-8", response.getContentType());
+            Assert.assertEquals(5, response.getContentLength());
+            Assert.assertEquals("Hello", read(response.getInputStream()));
+        } finally {
+            response.close();
+        }
+    }
+
+    @Test
+    public void testErrorStatusIsReturned() throws IOException {
+        ImportResponse response = new URLConnectionFetcher().fetch(base + "/missing", Collections.<String, String>emptyMap(), 0);
+        try {
+            Assert.assertEquals(404, response.getStatus());
+            Assert.assertEquals("Not here", read(response.getInputStream()));
+        } finally {
+            response.close();
+        }
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testReadTimeout() throws IOException {
+        new URLConnectionFetcher(1000, 100, 0).fetch(base + "/slow", Collections.<String, String>emptyMap(), 0);
+    }
+
+    @Test
+    public void testDeadline() throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            new URLConnectionFetcher().fetch(base + "/slow", Collections.<String, String>emptyMap(), start + 200);
+            Assert.fail("expected the deadline to be enforced");
+        } catch (SocketTimeoutException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+        }
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testPassedDeadline() throws IOException {
+        new URLConnectionFetcher().fetch(base + "/ok", Collections.<String, String>emptyMap(), System.currentTimeMillis() - 1);
+    }
+
+    @Test
+    public void testConnectionsPerHostAreLimited() throws IOException {
+        URLConnectionFetcher fetcher = new URLConnectionFetcher(100, 1000, 1);
+        ImportResponse first = fetcher.fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+        try {
+            fetcher.fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+            Assert.fail("expected the second request to be refused");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            first.close();
+        }
+        // the permit is returned when the response is closed
+        ImportResponse second = fetcher.fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+        try {
+            Assert.assertEquals("Hello", read(second.getInputStream()));
+        } finally {
+            second.close();
+        }
+        Assert.assertTrue(fetcher.hosts.isEmpty());
+    }
+
+    @Test
+    public void testUnboundedWaitForPermitFailsAtOnce() throws IOException {
+        URLConnectionFetcher fetcher = new URLConnectionFetcher(0, 1000, 1);
+        ImportResponse first = fetcher.fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+        long start = System.currentTimeMillis();
+        try {
+            fetcher.fetch(base + "/ok", Collections.<String, String>emptyMap(), 0);
+            Assert.fail("expected the second request to be refused");
+        } catch (IOException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 500);
+        } finally {
+            first.close();
+        }
+        Assert.assertTrue(fetcher.hosts.isEmpty());
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static class Reply implements HttpHandler {
+        private final int status;
+        private final byte[] body;
+        private final long delay;
+
+        Reply(int status, String body, long delay) {
+            this.status = status;
+            this.body = body.getBytes();
+            this.delay = delay;
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class UtilTest {
+
+    @Test
+    public void testRequestLocalesAreShared() {
+        HttpServletRequest first = request("da, en-GB;q=0.8", Locale.forLanguageTag("da"), Locale.UK);
+        HttpServletRequest second = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(second.getAttribute(Util.REQUEST_LOCALES)).andReturn(null);
+        EasyMock.expect(second.getHeaders("accept-language"))
+                .andReturn(Collections.enumeration(Collections.singletonList("da, en-GB;q=0.8")));
+        second.setAttribute(EasyMock.eq(Util.REQUEST_LOCALES), EasyMock.anyObject());
+        EasyMock.replay(second);
+
+        List<Locale> locales = Util.getRequestLocaleList(first);
+        Assert.assertEquals(Arrays.asList(Locale.forLanguageTag("da"), Locale.UK), locales);
+        Assert.assertSame(locales, Util.getRequestLocaleList(second));
+        EasyMock.verify(first, second);
+    }
+
+    @Test
+    public void testWrappedRequestLocalesAreNotShared() {
+        HttpServletRequest wrapped = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(wrapped.getAttribute(Util.REQUEST_LOCALES)).andReturn(null);
+        EasyMock.expect(wrapped.getHeaders("accept-language"))
+                .andReturn(Collections.enumeration(Collections.singletonList("sv, en;q=0.5")));
+        wrapped.setAttribute(EasyMock.eq(Util.REQUEST_LOCALES), EasyMock.anyObject());
+        EasyMock.replay(wrapped);
+        HttpServletRequest wrapper = new HttpServletRequestWrapper(wrapped) {
+            @Override
+            public Enumeration<Locale> getLocales() {
+                return Collections.enumeration(Collections.singletonList(Locale.GERMAN));
+            }
+        };
+        Assert.assertEquals(Collections.singletonList(Locale.GERMAN), Util.getRequestLocaleList(wrapper));
+
+        Locale swedish = Locale.forLanguageTag("sv");
+        HttpServletRequest request = request("sv, en;q=0.5", swedish, Locale.ENGLISH);
+        Assert.assertEquals(Arrays.asList(swedish, Locale.ENGLISH), Util.getRequestLocaleList(request));
+        EasyMock.verify(wrapped, request);
+    }
+
+    @Test
+    public void testRequestLocalesAreKeptInRequest() {
+        List<Locale> locales = Collections.singletonList(Locale.ITALIAN);
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(Util.REQUEST_LOCALES)).andReturn(locales);
+        EasyMock.replay(request);
+        Assert.assertSame(locales, Util.getRequestLocaleList(request));
+        EasyMock.verify(request);
+    }
+
+    @Test
+    public void testNoAcceptLanguage() {
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(Util.REQUEST_LOCALES)).andReturn(null);
+        EasyMock.expect(request.getHeaders("accept-language")).andReturn(Collections.<String>emptyEnumeration());
+        request.setAttribute(Util.REQUEST_LOCALES, Collections.<Locale>emptyList());
+        EasyMock.replay(request);
+        Assert.assertTrue(Util.getRequestLocaleList(request).isEmpty());
+        EasyMock.verify(request);
+    }
+
+    private static HttpServletRequest request(String header, Locale... locales) {
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(Util.REQUEST_LOCALES)).andReturn(null);
+        EasyMock.expect(request.getHeaders("accept-language"))
+                .andReturn(Collections.enumeration(Collections.singletonList(header)));
+        EasyMock.expect(request.getLocales()).andReturn(Collections.enumeration(Arrays.asList(locales)));
+        request.setAttribute(EasyMock.eq(Util.REQUEST_LOCALES), EasyMock.anyObject());
+        EasyMock.replay(request);
+        return request;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class BundleCacheListenerTest {
+
+    @Test
+    public void testApplicationsOnDifferentHostsAreKeptApart() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ServletContext first = servletContext("one.example.com", "/shop");
+        ServletContext second = servletContext("two.example.com", "/shop");
+        BundleCacheListener firstListener = new BundleCacheListener();
+        BundleCacheListener secondListener = new BundleCacheListener();
+
+        firstListener.contextInitialized(new ServletContextEvent(first));
+        secondListener.contextInitialized(new ServletContextEvent(second));
+        try {
+            Assert.assertTrue(server.isRegistered(BundleCacheListener.getObjectName(first)));
+            Assert.assertTrue(server.isRegistered(BundleCacheListener.getObjectName(second)));
+        } finally {
+            firstListener.contextDestroyed(new ServletContextEvent(first));
+            secondListener.contextDestroyed(new ServletContextEvent(second));
+        }
+        Assert.assertFalse(server.isRegistered(BundleCacheListener.getObjectName(first)));
+        Assert.assertFalse(server.isRegistered(BundleCacheListener.getObjectName(second)));
+    }
+
+    @Test
+    public void testOnlyOwnRegistrationIsRemoved() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ServletContext first = servletContext("example.com", "/app");
+        ServletContext second = servletContext("example.com", "/app");
+        BundleCacheListener firstListener = new BundleCacheListener();
+        BundleCacheListener secondListener = new BundleCacheListener();
+
+        firstListener.contextInitialized(new ServletContextEvent(first));
+        try {
+            // the name is taken, so the second application is not registered
+            secondListener.contextInitialized(new ServletContextEvent(second));
+            secondListener.contextDestroyed(new ServletContextEvent(second));
+            Assert.assertTrue(server.isRegistered(BundleCacheListener.getObjectName(first)));
+        } finally {
+            firstListener.contextDestroyed(new ServletContextEvent(first));
+        }
+        Assert.assertFalse(server.isRegistered(BundleCacheListener.getObjectName(first)));
+    }
+
+    private static ServletContext servletContext(String host, String path) {
+        ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+        EasyMock.expect(servletContext.getInitParameter(BundleCacheListener.MBEAN_PARAM)).andStubReturn("true");
+        EasyMock.expect(servletContext.getAttribute(BundleSupport.CACHE_SIZE_PARAM))
+                .andStubReturn(new LocalizationContextCache(10));
+        EasyMock.expect(servletContext.getVirtualServerName()).andStubReturn(host);
+        EasyMock.expect(servletContext.getContextPath()).andStubReturn(path);
+        EasyMock.replay(servletContext);
+        return servletContext;
+    }
+}
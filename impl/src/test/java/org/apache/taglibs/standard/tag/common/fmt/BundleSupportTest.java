@@ -16,9 +16,19 @@
  */
 package org.apache.taglibs.standard.tag.common.fmt;
 
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.jsp.PageContext;
+import jakarta.servlet.jsp.jstl.fmt.LocalizationContext;
 import jakarta.servlet.jsp.tagext.BodyContent;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,6 +37,8 @@ import org.junit.Test;
  */
 public class BundleSupportTest {
 
+    private static final String BASENAME = "org.apache.taglibs.standard.tag.common.fmt.Messages";
+
     private BundleSupport tag;
 
     @Before
@@ -44,4 +56,104 @@ public class BundleSupportTest {
         tag.release();
         Assert.assertNull(tag.getBodyContent());
     }
+
+    @Test
+    public void testResolutionIsCached() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        PageContext pc = pageContext(cache, Locale.FRENCH);
+        LocalizationContext first = BundleSupport.getLocalizationContext(pc, BASENAME);
+        Assert.assertEquals(Locale.FRENCH, first.getLocale());
+        Assert.assertEquals("Bonjour", first.getResourceBundle().getString("greeting"));
+        Assert.assertSame(first, BundleSupport.getLocalizationContext(pc, BASENAME));
+    }
+
+    @Test
+    public void testResolutionDependsOnPreferredLocales() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        LocalizationContext french = BundleSupport.getLocalizationContext(pageContext(cache, Locale.FRENCH), BASENAME);
+        LocalizationContext root = BundleSupport.getLocalizationContext(pageContext(cache, Locale.ENGLISH), BASENAME);
+        Assert.assertNull(root.getLocale());
+        Assert.assertEquals("Hello", root.getResourceBundle().getString("greeting"));
+        Assert.assertSame(french, BundleSupport.getLocalizationContext(pageContext(cache, Locale.FRENCH), BASENAME));
+    }
+
+    @Test
+    public void testStatisticsAreCountedPerBasename() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        PageContext pc = pageContext(cache, Locale.FRENCH);
+        BundleSupport.getLocalizationContext(pc, BASENAME);
+        BundleSupport.getLocalizationContext(pc, BASENAME);
+        BundleSupport.getLocalizationContext(pc, BASENAME);
+        Assert.assertArrayEquals(new String[]{BASENAME}, cache.getBasenames());
+        Assert.assertEquals(2, cache.getHitCount(BASENAME));
+        Assert.assertEquals(1, cache.getMissCount(BASENAME));
+        Assert.assertEquals(0, cache.getHitCount("unknown"));
+    }
+
+    @Test
+    public void testUnresolvedBasenamesAreNotRecorded() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        PageContext pc = pageContext(cache, Locale.FRENCH);
+        LocalizationContext missing = BundleSupport.getLocalizationContext(pc, "no.such.Bundle");
+        Assert.assertNull(missing.getResourceBundle());
+        Assert.assertSame(missing, BundleSupport.getLocalizationContext(pc, "no.such.Bundle"));
+        Assert.assertEquals(0, cache.getBasenames().length);
+    }
+
+    @Test
+    public void testInvalidateReloadsBasename() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        PageContext pc = pageContext(cache, Locale.FRENCH);
+        LocalizationContext first = BundleSupport.getLocalizationContext(pc, BASENAME);
+        cache.invalidate(BASENAME);
+        LocalizationContext second = BundleSupport.getLocalizationContext(pc, BASENAME);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("Bonjour", second.getResourceBundle().getString("greeting"));
+        Assert.assertSame(second, BundleSupport.getLocalizationContext(pc, BASENAME));
+        Assert.assertEquals(2, cache.getMissCount(BASENAME));
+    }
+
+    @Test
+    public void testResolutionStartedBeforeInvalidateIsNotCached() {
+        LocalizationContextCache cache = new LocalizationContextCache(10);
+        ClassLoader cl = getClass().getClassLoader();
+        long generation = cache.getGeneration(BASENAME);
+        cache.invalidate(BASENAME);
+        cache.put(cl, BASENAME, Locale.FRENCH, null, null, new LocalizationContext(), generation, 0);
+        Assert.assertNull(cache.get(cl, BASENAME, Locale.FRENCH, null, null));
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() {
+        ServletContext servletContext = EasyMock.createMock(ServletContext.class);
+        EasyMock.expect(servletContext.getAttribute(BundleSupport.CACHE_SIZE_PARAM)).andReturn(null).times(2);
+        EasyMock.expect(servletContext.getInitParameter(BundleSupport.CACHE_SIZE_PARAM)).andReturn("-1");
+        servletContext.setAttribute(BundleSupport.CACHE_SIZE_PARAM, Boolean.FALSE);
+        EasyMock.replay(servletContext);
+        Assert.assertNull(BundleSupport.getCache(servletContext));
+        EasyMock.verify(servletContext);
+    }
+
+    private static PageContext pageContext(LocalizationContextCache cache, final Locale locale) {
+        ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+        EasyMock.expect(servletContext.getAttribute(BundleSupport.CACHE_SIZE_PARAM)).andStubReturn(cache);
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getHeaders("accept-language")).andStubAnswer(new IAnswer<Enumeration<String>>() {
+            public Enumeration<String> answer() {
+                return Collections.enumeration(Collections.singletonList(locale.toLanguageTag()));
+            }
+        });
+        EasyMock.expect(request.getLocales()).andStubAnswer(new IAnswer<Enumeration<Locale>>() {
+            public Enumeration<Locale> answer() {
+                return Collections.enumeration(Collections.singletonList(locale));
+            }
+        });
+        ServletResponse response = EasyMock.createNiceMock(ServletResponse.class);
+        PageContext pc = EasyMock.createNiceMock(PageContext.class);
+        EasyMock.expect(pc.getServletContext()).andStubReturn(servletContext);
+        EasyMock.expect(pc.getRequest()).andStubReturn(request);
+        EasyMock.expect(pc.getResponse()).andStubReturn(response);
+        EasyMock.replay(servletContext, request, response, pc);
+        return pc;
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ */
+public class CompactResourceBundleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLookup() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("greeting", "Hello");
+        properties.setProperty("farewell", "Bye");
+        properties.setProperty("bye", "Bye");
+        properties.setProperty("accent", "caf\u00e9");
+        properties.setProperty("", "empty key");
+        CompactResourceBundle bundle = new CompactResourceBundle(table(properties));
+
+        Assert.assertEquals("Hello", bundle.getString("greeting"));
+        Assert.assertEquals("Bye", bundle.getString("farewell"));
+        Assert.assertEquals("Bye", bundle.getString("bye"));
+        Assert.assertEquals("caf\u00e9", bundle.getString("accent"));
+        Assert.assertEquals("empty key", bundle.getString(""));
+        Assert.assertFalse(bundle.containsKey("greetings"));
+        Assert.assertFalse(bundle.containsKey("g"));
+        Assert.assertEquals(properties.stringPropertyNames(), bundle.keySet());
+    }
+
+    @Test
+    public void testKeysWithSameHashCode() throws IOException {
+        // "Aa", "BB" and "C#" share a hash code
+        Properties properties = new Properties();
+        properties.setProperty("Aa", "first");
+        properties.setProperty("BB", "second");
+        CompactResourceBundle bundle = new CompactResourceBundle(table(properties));
+
+        Assert.assertEquals("second", bundle.getString(new String("BB")));
+        Assert.assertEquals("first", bundle.getString("Aa"));
+        Assert.assertEquals("second", bundle.getString("BB"));
+        Assert.assertFalse(bundle.containsKey("C#"));
+    }
+
+    @Test
+    public void testStringsAreStoredOnce() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("a", "same");
+        properties.setProperty("b", "same");
+        properties.setProperty("same", "same");
+        // header, 3 keys, 3 values, 3 strings and the end offset, then the characters
+        int expected = 4 * (4 + 3 + 3 + 4) + 2 * "asameb".length();
+        Assert.assertEquals(expected, table(properties).remaining());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotABundle() throws IOException {
+        new CompactResourceBundle(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}));
+    }
+
+    @Test
+    public void testControlPrefersCompactBundle() throws IOException {
+        File dir = folder.newFolder("bundles");
+        Properties properties = new Properties();
+        properties.setProperty("greeting", "Hello");
+        write(new File(dir, "Compact.properties"), properties);
+        properties.setProperty("greeting", "Bonjour");
+        write(new File(dir, "Compact_fr.properties"), properties);
+        CompactResourceBundle.main(new String[]{new File(dir, "Compact_fr.properties").getPath()});
+        properties.setProperty("greeting", "Salut");
+        write(new File(dir, "Compact_fr.properties"), properties);
+
+        ClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null);
+        ResourceBundle fr = ResourceBundle.getBundle("Compact", Locale.FRENCH, loader, CompactBundleControl.getInstance());
+        Assert.assertTrue(fr instanceof CompactResourceBundle);
+        Assert.assertEquals(Locale.FRENCH, fr.getLocale());
+        Assert.assertEquals("Bonjour", fr.getString("greeting"));
+
+        ResourceBundle root = ResourceBundle.getBundle("Compact", Locale.ROOT, loader, CompactBundleControl.getInstance());
+        Assert.assertFalse(root instanceof CompactResourceBundle);
+        Assert.assertEquals("Hello", root.getString("greeting"));
+        Assert.assertEquals(Collections.singleton("greeting"), fr.keySet());
+    }
+
+    private static ByteBuffer table(Properties properties) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactResourceBundle.write(properties, out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static void write(File file, Properties properties) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+}
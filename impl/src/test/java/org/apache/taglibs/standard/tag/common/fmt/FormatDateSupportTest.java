@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import jakarta.servlet.jsp.JspException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class FormatDateSupportTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private FormatDateSupport tag;
+
+    @Before
+    public void setup() {
+        tag = new FormatDateSupport() {
+        };
+    }
+
+    @Test
+    public void testDateFormatterIsNotShared() throws JspException {
+        tag.pattern = "yyyy-MM-dd HH:mm";
+        DateFormat first = tag.getFormatter(Locale.US);
+        first.setTimeZone(UTC);
+        DateFormat second = tag.getFormatter(Locale.US);
+        Assert.assertNotSame(first, second);
+        second.setTimeZone(TimeZone.getTimeZone("GMT+02:00"));
+        Date epoch = new Date(0);
+        Assert.assertEquals("1970-01-01 00:00", first.format(epoch));
+        Assert.assertEquals("1970-01-01 02:00", second.format(epoch));
+    }
+
+    @Test
+    public void testDateStyles() throws JspException {
+        tag.type = "both";
+        tag.dateStyle = "short";
+        tag.timeStyle = "long";
+        Date now = new Date();
+        Assert.assertEquals(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.LONG, Locale.FRANCE).format(now),
+                tag.getFormatter(Locale.FRANCE).format(now));
+    }
+
+    @Test
+    public void testLocalDate() throws JspException {
+        LocalDate date = LocalDate.of(2024, 3, 5);
+        Assert.assertEquals("Mar 5, 2024", tag.format(date, Locale.US, null));
+        tag.dateStyle = "full";
+        Assert.assertEquals("Tuesday, March 5, 2024", tag.format(date, Locale.US, null));
+        tag.pattern = "yyyy-MM-dd";
+        Assert.assertEquals("2024-03-05", tag.format(date, Locale.US, UTC));
+    }
+
+    @Test
+    public void testLocalDateTimeIsNotConverted() throws JspException {
+        tag.pattern = "yyyy-MM-dd HH:mm";
+        LocalDateTime dateTime = LocalDateTime.of(2024, 3, 5, 10, 30);
+        Assert.assertEquals("2024-03-05 10:30", tag.format(dateTime, Locale.US, TimeZone.getTimeZone("GMT+02:00")));
+    }
+
+    @Test
+    public void testInstantUsesTimeZone() throws JspException {
+        tag.pattern = "yyyy-MM-dd HH:mm";
+        Assert.assertEquals("1970-01-01 00:00", tag.format(Instant.EPOCH, Locale.US, UTC));
+        // shown as the same instant as a java.util.Date would be
+        Assert.assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US).format(new Date(0)),
+                tag.format(Instant.EPOCH, Locale.US, null));
+    }
+
+    @Test
+    public void testZonedValueIsConverted() throws JspException {
+        tag.pattern = "HH:mm XXX";
+        ZonedDateTime paris = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 0, ZoneId.of("Europe/Paris"));
+        Assert.assertEquals("11:00 Z", tag.format(paris, Locale.US, UTC));
+        OffsetDateTime offset = OffsetDateTime.of(2024, 1, 15, 12, 0, 0, 0, ZoneOffset.ofHours(5));
+        Assert.assertEquals("12:00 +05:00", tag.format(offset, Locale.US, null));
+    }
+
+    @Test
+    public void testPatternFollowsSimpleDateFormat() throws JspException {
+        // 2024-03-05 was a Tuesday
+        LocalDateTime dateTime = LocalDateTime.of(2024, 3, 5, 7, 8, 9, 45000000);
+        tag.pattern = "u S SSS yy EEEE MMM d";
+        Assert.assertEquals("2 45 045 24 Tuesday Mar 5", tag.format(dateTime, Locale.US, null));
+        tag.pattern = "h:mm a 'at' k''K";
+        Assert.assertEquals("7:08 AM at 7'7", tag.format(dateTime, Locale.US, null));
+        tag.pattern = "D F Z X";
+        Assert.assertEquals("65 1 +0000 Z", tag.format(dateTime.atZone(ZoneOffset.UTC), Locale.US, null));
+    }
+
+    @Test
+    public void testPatternMeansTheSameForDateAndTemporal() throws JspException {
+        String[] patterns = {
+                "G yyyy yy y MMMM MMM MM M LLLL d D F E EEEE u",
+                "H HH k K h hh m mm s ss S SSS a",
+                "Y-'W'ww-u W", "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "XX XXX z zzzz", "'o''clock' ''"
+        };
+        ZonedDateTime dateTime = ZonedDateTime.of(2024, 12, 30, 23, 5, 9, 7000000, ZoneId.of("America/New_York"));
+        TimeZone tz = TimeZone.getTimeZone("America/New_York");
+        for (String pattern : patterns) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(tz);
+            tag.pattern = pattern;
+            Assert.assertEquals(pattern, format.format(Date.from(dateTime.toInstant())),
+                    tag.format(dateTime, Locale.US, tz));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPatternLetterUnknownToSimpleDateFormat() throws JspException {
+        tag.pattern = "yyyy-MM-dd xxx";
+        tag.format(LocalDate.of(2024, 3, 5), Locale.US, null);
+    }
+
+    @Test(expected = JspException.class)
+    public void testUnsupportedValue() throws JspException {
+        tag.type = "time";
+        tag.format(LocalDate.of(2024, 3, 5), Locale.US, null);
+    }
+
+    @Test(expected = JspException.class)
+    public void testInvalidStyle() throws JspException {
+        tag.dateStyle = "tiny";
+        tag.format(LocalDate.of(2024, 3, 5), Locale.US, null);
+    }
+}
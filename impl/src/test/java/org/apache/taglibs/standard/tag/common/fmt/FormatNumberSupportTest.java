@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+
+import jakarta.servlet.jsp.JspException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class FormatNumberSupportTest {
+
+    private FormatNumberSupport tag;
+
+    @Before
+    public void setup() {
+        tag = new FormatNumberSupport() {
+        };
+    }
+
+    @Test
+    public void testNumber() throws JspException {
+        Assert.assertEquals("1,234.568", tag.getFormatter(Locale.US).format(1234.5678));
+        Assert.assertEquals("1.234,568", tag.getFormatter(Locale.GERMANY).format(1234.5678));
+    }
+
+    @Test
+    public void testFormatterIsNotShared() throws JspException {
+        NumberFormat first = tag.getFormatter(Locale.US);
+        Assert.assertNotSame(first, tag.getFormatter(Locale.US));
+        first.setMaximumFractionDigits(0);
+        Assert.assertEquals("1,234.568", tag.getFormatter(Locale.US).format(1234.5678));
+    }
+
+    @Test
+    public void testDigitsAndGrouping() throws JspException {
+        tag.isGroupingUsed = false;
+        tag.groupingUsedSpecified = true;
+        tag.maxFractionDigits = 1;
+        tag.maxFractionDigitsSpecified = true;
+        Assert.assertEquals("1234.6", tag.getFormatter(Locale.US).format(1234.5678));
+        tag.groupingUsedSpecified = false;
+        Assert.assertEquals("1,234.6", tag.getFormatter(Locale.US).format(1234.5678));
+    }
+
+    @Test
+    public void testCurrencyCodeTakesPrecedence() throws JspException {
+        tag.type = "currency";
+        tag.currencySymbol = "EUR ";
+        Assert.assertEquals("EUR 1.50", tag.getFormatter(Locale.US).format(1.5));
+        tag.currencyCode = "GBP";
+        String pound = Currency.getInstance("GBP").getSymbol(Locale.US);
+        Assert.assertEquals(pound + "1.50", tag.getFormatter(Locale.US).format(1.5));
+    }
+
+    @Test
+    public void testPattern() throws JspException {
+        tag.pattern = "#,##0.00 \u00A4";
+        tag.currencyCode = "USD";
+        String dollar = Currency.getInstance("USD").getSymbol(Locale.GERMANY);
+        Assert.assertEquals("1.234,50 " + dollar, tag.getFormatter(Locale.GERMANY).format(1234.5));
+    }
+
+    @Test(expected = JspException.class)
+    public void testInvalidCurrencyCode() throws JspException {
+        tag.type = "currency";
+        tag.currencyCode = "XX";
+        tag.getFormatter(Locale.US);
+    }
+
+    @Test(expected = JspException.class)
+    public void testInvalidType() throws JspException {
+        tag.type = "fraction";
+        tag.getFormatter(Locale.US);
+    }
+}
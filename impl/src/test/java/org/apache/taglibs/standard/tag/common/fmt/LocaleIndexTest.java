@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.text.DateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.taglibs.standard.tag.common.core.Util;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class LocaleIndexTest {
+
+    @Test
+    public void testMatchesLinearScan() {
+        Locale[] avail = DateFormat.getAvailableLocales();
+        LocaleIndex index = new LocaleIndex(avail);
+        for (Locale pref : avail) {
+            Assert.assertEquals(pref.toString(), scan(pref, avail), index.match(pref));
+            Locale withVariant = new Locale(pref.getLanguage(), pref.getCountry(), "POSIX");
+            Assert.assertEquals(withVariant.toString(), scan(withVariant, avail), index.match(withVariant));
+            Locale withOtherCountry = new Locale(pref.getLanguage(), "ZZ");
+            Assert.assertEquals(withOtherCountry.toString(), scan(withOtherCountry, avail), index.match(withOtherCountry));
+        }
+    }
+
+    @Test
+    public void testMatch() {
+        Locale variant = new Locale("es", "ES", "Traditional_WIN");
+        LocaleIndex index = new LocaleIndex(new Locale[]{Locale.ENGLISH, Locale.US, new Locale("es", "ES"), variant});
+        Assert.assertEquals(Locale.US, index.match(Locale.US));
+        Assert.assertEquals(Locale.ENGLISH, index.match(Locale.UK));
+        Assert.assertEquals(variant, index.match(variant));
+        Assert.assertEquals(new Locale("es", "ES"), index.match(new Locale("es", "ES", "POSIX")));
+        Assert.assertNull(index.match(new Locale("es", "MX")));
+        Assert.assertNull(index.match(Locale.FRENCH));
+    }
+
+    @Test
+    public void testPreferredLocales() {
+        LocaleIndex index = new LocaleIndex(new Locale[]{Locale.ENGLISH, Locale.GERMAN});
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(Util.REQUEST_LOCALES))
+                .andStubReturn(Collections.unmodifiableList(Arrays.asList(Locale.FRENCH, Locale.GERMAN)));
+        EasyMock.replay(request);
+        Assert.assertEquals(Locale.GERMAN, index.match(request));
+        Assert.assertEquals(Locale.GERMAN, index.match(request));
+        EasyMock.verify(request);
+    }
+
+    @Test
+    public void testNoPreferredLocales() {
+        LocaleIndex index = new LocaleIndex(new Locale[]{Locale.ENGLISH});
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(Util.REQUEST_LOCALES)).andReturn(Collections.<Locale>emptyList());
+        EasyMock.replay(request);
+        Assert.assertNull(index.match(request));
+        EasyMock.verify(request);
+    }
+
+    // the linear scan the index replaces
+    private static Locale scan(Locale pref, Locale[] avail) {
+        Locale match = null;
+        boolean langAndCountryMatch = false;
+        for (Locale locale : avail) {
+            if (pref.equals(locale)) {
+                match = locale;
+                break;
+            } else if (!"".equals(pref.getVariant()) && "".equals(locale.getVariant())
+                    && pref.getLanguage().equals(locale.getLanguage())
+                    && pref.getCountry().equals(locale.getCountry())) {
+                match = locale;
+                langAndCountryMatch = true;
+            } else if (!langAndCountryMatch && pref.getLanguage().equals(locale.getLanguage())
+                    && "".equals(locale.getCountry())) {
+                if (match == null) {
+                    match = locale;
+                }
+            }
+        }
+        return match;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class MessageSupportTest {
+
+    @Test
+    public void testFormatterIsLocalized() {
+        Object[] args = {1234.5};
+        Assert.assertEquals("Total 1,234.5", MessageSupport.getMessageFormat("Total {0}", Locale.US).format(args));
+        Assert.assertEquals("Total 1.234,5", MessageSupport.getMessageFormat("Total {0}", Locale.GERMANY).format(args));
+    }
+
+    @Test
+    public void testFormatterIsNotShared() {
+        MessageFormat first = MessageSupport.getMessageFormat("{0} of {1}", Locale.US);
+        MessageFormat second = MessageSupport.getMessageFormat("{0} of {1}", Locale.US);
+        Assert.assertNotSame(first, second);
+        first.applyPattern("changed");
+        Assert.assertEquals("1 of 2", second.format(new Object[]{1, 2}));
+        Assert.assertEquals("1 of 2", MessageSupport.getMessageFormat("{0} of {1}", Locale.US).format(new Object[]{1, 2}));
+    }
+
+    @Test
+    public void testDefaultLocale() {
+        MessageFormat formatter = MessageSupport.getMessageFormat("{0}", null);
+        Assert.assertEquals(Locale.getDefault(Locale.Category.FORMAT), formatter.getLocale());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import jakarta.servlet.jsp.JspException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class ParseDateSupportTest {
+
+    private ParseDateSupport tag;
+
+    @Before
+    public void setup() {
+        tag = new ParseDateSupport() {
+        };
+    }
+
+    @Test
+    public void testParserIsNotShared() throws JspException, ParseException {
+        tag.pattern = "yyyy-MM-dd HH:mm";
+        DateFormat first = tag.getParser(Locale.US);
+        first.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Assert.assertNotSame(first, tag.getParser(Locale.US));
+        Assert.assertEquals(new Date(0), first.parse("1970-01-01 00:00"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParserIsStrict() throws JspException, ParseException {
+        tag.dateStyle = "short";
+        tag.getParser(Locale.US).parse("13/45/24");
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.jsp.PageContext;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class SetLocaleSupportTest {
+
+    private static final int TAGS = 50;
+
+    private final Map<String, Object> requestScope = new HashMap<>();
+    private final Map<String, Object> sessionScope = new HashMap<>();
+    private int sessionWrites;
+    private int localeWrites;
+    private Locale responseLocale = Locale.getDefault();
+
+    @Test
+    public void testEveryTagWritesByDefault() {
+        PageContext pc = pageContext(null);
+        for (int i = 0; i < TAGS; i++) {
+            SetLocaleSupport.setResponseLocale(pc, Locale.FRANCE);
+        }
+        Assert.assertEquals(TAGS, sessionWrites);
+        Assert.assertEquals(TAGS, localeWrites);
+    }
+
+    @Test
+    public void testWriteIfChanged() {
+        PageContext pc = pageContext("true");
+        for (int i = 0; i < TAGS; i++) {
+            SetLocaleSupport.setResponseLocale(pc, Locale.FRANCE);
+        }
+        Assert.assertEquals(1, sessionWrites);
+        Assert.assertEquals(1, localeWrites);
+        Assert.assertEquals("UTF-8", sessionScope.get(RequestEncodingSupport.REQUEST_CHAR_SET));
+
+        SetLocaleSupport.setResponseLocale(pc, Locale.GERMANY);
+        Assert.assertEquals(2, localeWrites);
+        Assert.assertEquals(Locale.GERMANY, responseLocale);
+        // the charset is unchanged
+        Assert.assertEquals(1, sessionWrites);
+    }
+
+    @Test
+    public void testWriteIfChangedFollowsOtherChanges() {
+        PageContext pc = pageContext("true");
+        SetLocaleSupport.setResponseLocale(pc, Locale.FRANCE);
+        // the page changes the response locale itself
+        responseLocale = Locale.ITALY;
+        SetLocaleSupport.setResponseLocale(pc, Locale.FRANCE);
+        Assert.assertEquals(2, localeWrites);
+        Assert.assertEquals(Locale.FRANCE, responseLocale);
+    }
+
+    private PageContext pageContext(String writeIfChanged) {
+        ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+        EasyMock.expect(servletContext.getInitParameter(SetLocaleSupport.WRITE_IF_CHANGED_PARAM))
+                .andStubReturn(writeIfChanged);
+
+        ServletResponse response = EasyMock.createNiceMock(ServletResponse.class);
+        response.setLocale(EasyMock.<Locale>anyObject());
+        EasyMock.expectLastCall().andStubAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                localeWrites++;
+                responseLocale = (Locale) EasyMock.getCurrentArguments()[0];
+                return null;
+            }
+        });
+        EasyMock.expect(response.getLocale()).andStubAnswer(new IAnswer<Locale>() {
+            public Locale answer() {
+                return responseLocale;
+            }
+        });
+        EasyMock.expect(response.getCharacterEncoding()).andStubReturn("UTF-8");
+
+        PageContext pc = EasyMock.createNiceMock(PageContext.class);
+        EasyMock.expect(pc.getServletContext()).andStubReturn(servletContext);
+        EasyMock.expect(pc.getResponse()).andStubReturn(response);
+        EasyMock.expect(pc.getSession()).andStubReturn(EasyMock.createNiceMock(HttpSession.class));
+        EasyMock.expect(pc.getAttribute(EasyMock.<String>anyObject(), EasyMock.anyInt())).andStubAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                Object[] args = EasyMock.getCurrentArguments();
+                return scope((Integer) args[1]).get(args[0]);
+            }
+        });
+        pc.setAttribute(EasyMock.<String>anyObject(), EasyMock.anyObject(), EasyMock.anyInt());
+        EasyMock.expectLastCall().andStubAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                Object[] args = EasyMock.getCurrentArguments();
+                if ((Integer) args[2] == PageContext.SESSION_SCOPE) {
+                    sessionWrites++;
+                }
+                scope((Integer) args[2]).put((String) args[0], args[1]);
+                return null;
+            }
+        });
+        EasyMock.replay(servletContext, response, pc);
+        return pc;
+    }
+
+    private Map<String, Object> scope(int scope) {
+        return scope == PageContext.SESSION_SCOPE ? sessionScope : requestScope;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.tag.common.fmt;
+
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.PageContext;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class TimeZoneSupportTest {
+
+    @Test
+    public void testTimeZoneIsShared() {
+        TimeZone tz = TimeZoneSupport.getTimeZone("Europe/Paris");
+        Assert.assertEquals("Europe/Paris", tz.getID());
+        Assert.assertSame(tz, TimeZoneSupport.getTimeZone("Europe/Paris"));
+    }
+
+    @Test
+    public void testUnknownIdIsGMT() {
+        Assert.assertEquals("GMT", TimeZoneSupport.getTimeZone("Nowhere/Special").getID());
+    }
+
+    @Test
+    public void testMissingValueIsGMT() {
+        Assert.assertEquals("GMT", TimeZoneSupport.toTimeZone(null).getID());
+        Assert.assertSame(TimeZoneSupport.toTimeZone(null), TimeZoneSupport.toTimeZone("  "));
+    }
+
+    @Test
+    public void testTimeZoneValueIsUsedAsIs() {
+        TimeZone tz = TimeZone.getTimeZone("Asia/Tokyo");
+        Assert.assertSame(tz, TimeZoneSupport.toTimeZone(tz));
+    }
+
+    @Test
+    public void testTagExposesACopy() throws JspException {
+        TimeZoneSupport tag = new TimeZoneSupport() {
+        };
+        tag.value = "Europe/Paris";
+        tag.doStartTag();
+        TimeZone tz = tag.getTimeZone();
+        Assert.assertEquals("Europe/Paris", tz.getID());
+        tz.setID("Changed/Zone");
+        Assert.assertEquals("Europe/Paris", TimeZoneSupport.getTimeZone("Europe/Paris").getID());
+    }
+
+    @Test
+    public void testSetTimeZonePublishesACopy() throws JspException {
+        Capture<Object> published = new Capture<Object>();
+        PageContext pageContext = EasyMock.createMock(PageContext.class);
+        pageContext.setAttribute(EasyMock.eq("tz"), EasyMock.capture(published), EasyMock.eq(PageContext.PAGE_SCOPE));
+        EasyMock.replay(pageContext);
+
+        SetTimeZoneSupport tag = new SetTimeZoneSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.setVar("tz");
+        tag.value = "Asia/Tokyo";
+        tag.doEndTag();
+        EasyMock.verify(pageContext);
+
+        TimeZone tz = (TimeZone) published.getValue();
+        Assert.assertEquals("Asia/Tokyo", tz.getID());
+        Assert.assertNotSame(TimeZoneSupport.getTimeZone("Asia/Tokyo"), tz);
+    }
+
+    @Test
+    public void testZoneId() {
+        Assert.assertEquals(ZoneId.of("America/New_York"),
+                TimeZoneSupport.toZoneId(TimeZone.getTimeZone("America/New_York")));
+        Assert.assertEquals(TimeZone.getTimeZone("GMT+02:00").toZoneId(),
+                TimeZoneSupport.toZoneId(TimeZone.getTimeZone("GMT+02:00")));
+    }
+}
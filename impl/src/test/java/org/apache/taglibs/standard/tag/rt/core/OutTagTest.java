@@ -16,6 +16,20 @@
  */
 package org.apache.taglibs.standard.tag.rt.core;
 
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
+import jakarta.servlet.jsp.PageContext;
+import jakarta.servlet.jsp.tagext.BodyContent;
+import jakarta.servlet.jsp.tagext.BodyTag;
+import jakarta.servlet.jsp.tagext.Tag;
+
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -30,5 +44,212 @@ public class OutTagTest {
         Assert.assertNull(tag.evalValue());
         Assert.assertNull(tag.evalDefault());
         Assert.assertTrue(tag.evalEscapeXml());
+        Assert.assertNull(tag.evalEscapeMode());
+    }
+
+    @Test
+    public void testBodyIsEscapedAndTrimmed() throws Exception {
+        Assert.assertEquals("&lt;script&gt;alert(&#039;x&#039;)&lt;/script&gt; &amp;",
+                evalBody(tag, "  <script>alert('x')</script> &\n "));
+    }
+
+    @Test
+    public void testBodyIsNotEscapedWhenEscapeXmlIsFalse() throws Exception {
+        tag.setEscapeXml(false);
+        Assert.assertEquals("<b>bold</b>", evalBody(tag, " <b>bold</b> "));
+    }
+
+    @Test
+    public void testValueSkipsBody() throws Exception {
+        StringBodyContent page = new StringBodyContent(null);
+        tag.setPageContext(pageContext(page));
+        tag.setValue("<i>");
+        Assert.assertEquals(Tag.SKIP_BODY, tag.doStartTag());
+        Assert.assertEquals(Tag.EVAL_PAGE, tag.doEndTag());
+        Assert.assertEquals("&lt;i&gt;", page.getString());
+    }
+
+    /*
+     * Runs the tag as a container would with a body that writes the given
+     * template text, and returns what is written to the page.
+     */
+    private static String evalBody(OutTag tag, String text) throws JspException, IOException {
+        StringBodyContent page = new StringBodyContent(null);
+        tag.setPageContext(pageContext(page));
+        Assert.assertEquals(BodyTag.EVAL_BODY_BUFFERED, tag.doStartTag());
+        StringBodyContent body = new StringBodyContent(page);
+        tag.setBodyContent(body);
+        tag.doInitBody();
+        body.write(text);
+        Assert.assertEquals(Tag.SKIP_BODY, tag.doAfterBody());
+        Assert.assertEquals(Tag.EVAL_PAGE, tag.doEndTag());
+        return page.getString();
+    }
+
+    private static PageContext pageContext(JspWriter out) {
+        PageContext pc = EasyMock.createNiceMock(PageContext.class);
+        EasyMock.expect(pc.getOut()).andStubReturn(out);
+        EasyMock.replay(pc);
+        return pc;
+    }
+
+    /*
+     * A body content, also used for the page itself, that keeps what is
+     * written to it in memory.
+     */
+    private static class StringBodyContent extends BodyContent {
+        private final CharArrayWriter buffer = new CharArrayWriter();
+
+        StringBodyContent(JspWriter enclosing) {
+            super(enclosing);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            buffer.write(cbuf, off, len);
+        }
+
+        @Override
+        public Reader getReader() {
+            return new StringReader(getString());
+        }
+
+        @Override
+        public String getString() {
+            return buffer.toString();
+        }
+
+        @Override
+        public void writeOut(Writer out) throws IOException {
+            buffer.writeTo(out);
+        }
+
+        @Override
+        public void newLine() throws IOException {
+            write(System.getProperty("line.separator"));
+        }
+
+        @Override
+        public void print(boolean b) throws IOException {
+            write(String.valueOf(b));
+        }
+
+        @Override
+        public void print(char c) throws IOException {
+            write(String.valueOf(c));
+        }
+
+        @Override
+        public void print(int i) throws IOException {
+            write(String.valueOf(i));
+        }
+
+        @Override
+        public void print(long l) throws IOException {
+            write(String.valueOf(l));
+        }
+
+        @Override
+        public void print(float f) throws IOException {
+            write(String.valueOf(f));
+        }
+
+        @Override
+        public void print(double d) throws IOException {
+            write(String.valueOf(d));
+        }
+
+        @Override
+        public void print(char[] s) throws IOException {
+            write(s);
+        }
+
+        @Override
+        public void print(String s) throws IOException {
+            write(String.valueOf(s));
+        }
+
+        @Override
+        public void print(Object obj) throws IOException {
+            write(String.valueOf(obj));
+        }
+
+        @Override
+        public void println() throws IOException {
+            newLine();
+        }
+
+        @Override
+        public void println(boolean x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(char x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(int x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(long x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(float x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(double x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(char[] x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(String x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void println(Object x) throws IOException {
+            print(x);
+            newLine();
+        }
+
+        @Override
+        public void clear() {
+            buffer.reset();
+        }
+
+        @Override
+        public void clearBuffer() {
+            buffer.reset();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int getRemaining() {
+            return 0;
+        }
     }
 }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class CharBufferPoolTest {
+
+    private CharBufferPool pool = new CharBufferPool(2);
+
+    @Test
+    public void testBufferIsReused() {
+        char[] buffer = pool.acquire();
+        Assert.assertEquals(CharBufferPool.BUFFER_SIZE, buffer.length);
+        pool.release(buffer);
+        Assert.assertSame(buffer, pool.acquire());
+    }
+
+    @Test
+    public void testAllocatesWhenEmpty() {
+        char[] first = pool.acquire();
+        char[] second = pool.acquire();
+        Assert.assertNotSame(first, second);
+    }
+
+    @Test
+    public void testDropsWhenFull() {
+        char[] a = pool.acquire();
+        char[] b = pool.acquire();
+        char[] c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        Assert.assertSame(a, pool.acquire());
+        Assert.assertSame(b, pool.acquire());
+        Assert.assertNotSame(c, pool.acquire());
+    }
+}
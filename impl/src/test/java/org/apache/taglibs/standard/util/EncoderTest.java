@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import jakarta.servlet.jsp.JspWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ */
+public class EncoderTest {
+    private JspWriter writer;
+
+    @Before
+    public void setup() {
+        writer = createMock(JspWriter.class);
+    }
+
+    @Test
+    public void testForName() {
+        Assert.assertSame(Encoder.XML, Encoder.forName("xml"));
+        Assert.assertSame(Encoder.HTML_ATTRIBUTE, Encoder.forName("htmlAttribute"));
+        Assert.assertSame(Encoder.JAVASCRIPT, Encoder.forName("javascript"));
+        Assert.assertSame(Encoder.URL, Encoder.forName("url"));
+        Assert.assertSame(Encoder.CSS, Encoder.forName("css"));
+        Assert.assertNull(Encoder.forName("bogus"));
+    }
+
+    @Test
+    public void testCleanStringIsNotCopied() {
+        String s = "Hello";
+        Assert.assertSame(s, Encoder.HTML_ATTRIBUTE.encode(s));
+        Assert.assertSame(s, Encoder.JAVASCRIPT.encode(s));
+        Assert.assertSame(s, Encoder.URL.encode(s));
+        Assert.assertSame(s, Encoder.CSS.encode(s));
+    }
+
+    @Test
+    public void testXml() {
+        Assert.assertEquals("&lt;Hello msg=&#034;world&#034;/&gt;", Encoder.XML.encode("<Hello msg=\"world\"/>"));
+    }
+
+    @Test
+    public void testHtmlAttribute() {
+        Assert.assertEquals("a&#032;&amp;&#032;b&#061;&#096;c&#096;", Encoder.HTML_ATTRIBUTE.encode("a & b=`c`"));
+    }
+
+    @Test
+    public void testJavaScript() {
+        Assert.assertEquals("it\\x27s \\x22quoted\\x22\\n", Encoder.JAVASCRIPT.encode("it's \"quoted\"\n"));
+        Assert.assertEquals("\\x3C\\/script\\x3E", Encoder.JAVASCRIPT.encode("</script>"));
+        Assert.assertEquals("a\\\\b\\u0000", Encoder.JAVASCRIPT.encode("a\\b\u0000"));
+        Assert.assertEquals("line\\u2028end", Encoder.JAVASCRIPT.encode("line\u2028end"));
+        Assert.assertEquals("caf\u00e9", Encoder.JAVASCRIPT.encode("caf\u00e9"));
+    }
+
+    @Test
+    public void testUrl() {
+        Assert.assertEquals("a%20b%26c%3Dd~e", Encoder.URL.encode("a b&c=d~e"));
+        Assert.assertEquals("caf%C3%A9", Encoder.URL.encode("caf\u00e9"));
+        Assert.assertEquals("%E2%82%AC", Encoder.URL.encode("\u20ac"));
+        Assert.assertEquals("%F0%9F%98%80", Encoder.URL.encode("\ud83d\ude00"));
+        Assert.assertEquals("%EF%BF%BDx", Encoder.URL.encode("\ud83dx"));
+    }
+
+    @Test
+    public void testCss() {
+        Assert.assertEquals("a\\20 b\\27 \\3c ", Encoder.CSS.encode("a b'<"));
+    }
+
+    @Test
+    public void testEmitString() throws IOException {
+        String s = "a b";
+        writer.write(s, 0, 1);
+        writer.write("%20");
+        writer.write(s, 2, 1);
+        replay(writer);
+        Encoder.URL.emit(s, writer);
+        verify(writer);
+    }
+
+    @Test
+    public void testEmitChars() throws IOException {
+        char[] chars = "x\"y".toCharArray();
+        writer.write(chars, 0, 1);
+        writer.write("\\x22");
+        writer.write(chars, 2, 1);
+        replay(writer);
+        Encoder.JAVASCRIPT.emit(chars, 0, chars.length, writer);
+        verify(writer);
+    }
+
+    @Test
+    public void testEmitReaderKeepsSurrogatePairs() throws IOException {
+        expect(writer.getBufferSize()).andStubReturn(2);
+        writer.write(isA(char[].class), eq(0), eq(1));
+        writer.write("%F0%9F%98%80");
+        replay(writer);
+        Encoder.URL.emit((Object) new StringReader("x\ud83d\ude00"), writer);
+        verify(writer);
+    }
+
+    @Test
+    public void testEmitSafeMarkup() throws IOException {
+        writer.write("<b>");
+        replay(writer);
+        Encoder.JAVASCRIPT.emit(SafeMarkup.of("<b>"), writer);
+        verify(writer);
+    }
+}
@@ -53,6 +53,30 @@ public class EscapeXMLTest {
         Assert.assertEquals("cats &amp; dogs", escape("cats & dogs"));
     }
 
+    @Test
+    public void testEscapeOnlyMarkupCharacters() {
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            String s = String.valueOf(c);
+            switch (c) {
+                case '<':
+                case '>':
+                case '&':
+                case '\'':
+                case '"':
+                    Assert.assertNotSame(s, escape(s));
+                    break;
+                default:
+                    Assert.assertSame(s, escape(s));
+            }
+        }
+    }
+
+    @Test
+    public void testEscapeLongString() {
+        Assert.assertEquals("a long label with no markup at all", escape("a long label with no markup at all"));
+        Assert.assertEquals("a long label &amp; then &lt;b&gt;markup&lt;/b&gt;", escape("a long label & then <b>markup</b>"));
+    }
+
     @Test
     public void testEmitInteger() throws IOException {
         writer.write("1234");
@@ -69,6 +93,14 @@ public class EscapeXMLTest {
         verify(writer);
     }
 
+    @Test
+    public void testEmitSafeMarkup() throws IOException {
+        writer.write("<b>cats &amp; dogs</b>");
+        replay(writer);
+        emit(SafeMarkup.of("<b>cats &amp; dogs</b>"), true, writer);
+        verify(writer);
+    }
+
     @Test
     public void testEmitStringEscaped() throws IOException {
         String s = "cats & dogs";
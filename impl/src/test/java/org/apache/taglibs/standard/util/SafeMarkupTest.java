@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class SafeMarkupTest {
+
+    @Test
+    public void testOf() {
+        SafeMarkup markup = SafeMarkup.of("<b>bold</b>");
+        Assert.assertEquals("<b>bold</b>", markup.toString());
+        Assert.assertEquals(11, markup.length());
+        Assert.assertEquals('<', markup.charAt(0));
+        Assert.assertEquals(SafeMarkup.of("bold"), markup.subSequence(3, 7));
+        Assert.assertSame(markup, SafeMarkup.of(markup));
+    }
+
+    @Test
+    public void testEscape() {
+        Assert.assertEquals("cats &amp; dogs", SafeMarkup.escape("cats & dogs").toString());
+    }
+
+    @Test
+    public void testEscapeIsCached() {
+        String text = new String("<b>bold</b>");
+        Assert.assertSame(SafeMarkup.escape(text), SafeMarkup.escape(text));
+    }
+
+    @Test
+    public void testLongTextIsNotCached() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() <= 128) {
+            text.append("<b>bold</b>");
+        }
+        String s = text.toString();
+        Assert.assertNotSame(SafeMarkup.escape(s), SafeMarkup.escape(s));
+        Assert.assertEquals(SafeMarkup.escape(s), SafeMarkup.escape(s));
+    }
+}
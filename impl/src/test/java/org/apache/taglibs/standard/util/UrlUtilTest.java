@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.taglibs.standard.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class UrlUtilTest {
+
+    @Test
+    public void testIsAbsoluteUrl() {
+        Assert.assertTrue(UrlUtil.isAbsoluteUrl("http://example.com/"));
+        Assert.assertFalse(UrlUtil.isAbsoluteUrl("/foo?a=b:c"));
+        Assert.assertFalse(UrlUtil.isAbsoluteUrl(null));
+    }
+
+    @Test
+    public void testEncodeUnchanged() {
+        String s = "Hello_World-1.2*";
+        Assert.assertSame(s, UrlUtil.encode(s, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodeMatchesURLEncoder() throws UnsupportedEncodingException {
+        String[] samples = {
+                "a b", "a&b=c", "caf\u00e9", "\u20ac 5", "x\ud83d\ude00y", "\ud83dx", "~!@#$%^()+", ""
+        };
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1}) {
+            for (String sample : samples) {
+                Assert.assertEquals(sample, URLEncoder.encode(sample, charset.name()), UrlUtil.encode(sample, charset));
+            }
+        }
+        StringBuilder all = new StringBuilder();
+        for (char c = 0; c < 256; c++) {
+            all.append(c);
+        }
+        Assert.assertEquals(URLEncoder.encode(all.toString(), "UTF-8"), UrlUtil.encode(all.toString(), StandardCharsets.UTF_8));
+    }
+}